@@ -1,104 +1,158 @@
 package com.janitri.base;
 
-import io.github.bonigarcia.wdm.WebDriverManager;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
-import org.openqa.selenium.firefox.FirefoxDriver;
-import org.openqa.selenium.firefox.FirefoxOptions;
+import org.testng.ITestResult;
 import org.testng.annotations.AfterMethod;
+import org.testng.annotations.AfterSuite;
 import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Optional;
 import org.testng.annotations.Parameters;
 
+import com.janitri.health.CircuitBreaker;
+import com.janitri.metrics.CommandMetrics;
+import com.janitri.metrics.PageTiming;
+import com.janitri.metrics.PerformanceBudget;
+import com.janitri.metrics.RunHistory;
+import com.janitri.pages.CachedLocatorFactory;
+import com.janitri.pages.LocatorCache;
+import com.janitri.session.SessionCache;
+import com.janitri.utils.TestLog;
+import com.janitri.waits.Conditions;
+import com.janitri.waits.SmartWait;
+import com.janitri.waits.WaitBudget;
+
+import java.lang.reflect.Method;
+import java.nio.file.Paths;
 import java.time.Duration;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 public class BaseTest {
     
     private static final ThreadLocal<WebDriver> driver = new ThreadLocal<>();
-    protected static final String BASE_URL = "https://dev-dash.janitri.in/";
+    // Undecorated session as leased from the pool; driver holds the instrumented view of it
+    private static final ThreadLocal<WebDriver> session = new ThreadLocal<>();
+    protected static final String BASE_URL = TargetEnvironment.baseUrl();
+    private static final Duration PAGE_READY_TIMEOUT = Duration.ofSeconds(30);
     
     public static WebDriver getDriver() {
         return driver.get();
     }
     
-    @Parameters({"browser"})
+    @Parameters({"browser", "profile"})
     @BeforeMethod
-    public void setUp(String browser) {
-        setupDriver(browser.toLowerCase());
-        configureDriver();
+    public void setUp(String browser, @Optional("default") String profile, Method testMethod) {
+        String testName = getClass().getSimpleName() + "." + testMethod.getName();
+        TestLog.startTest(testName);
+        WaitBudget.start(testName);
+        CommandMetrics.startTest(testName);
+        if (requiresHealthyTarget()) {
+            CircuitBreaker.checkClosed();
+        }
+        setupDriver(browser.toLowerCase(), BrowserProfile.resolve(profile));
+        BrowserWatchdog.getInstance().startTest(testName, session.get());
         
         try {
-            System.out.println("Navigating to: " + BASE_URL);
+            TestLog.info("Navigating to: " + BASE_URL);
             getDriver().get(BASE_URL);
             
             // Wait for page to load and print current URL
-            Thread.sleep(3000);
-            System.out.println("Current URL: " + getDriver().getCurrentUrl());
-            System.out.println("Page Title: " + getDriver().getTitle());
+            waitForPageReady();
+            TestLog.info("Current URL: " + getDriver().getCurrentUrl());
+            TestLog.info("Page Title: " + getDriver().getTitle());
+            CircuitBreaker.recordSuccess();
             
         } catch (Exception e) {
-            System.out.println("Error loading page: " + e.getMessage());
-            System.out.println("Trying to continue with current page...");
+            CircuitBreaker.recordFailure(e.getMessage());
+            TestLog.info("Error loading page: " + e.getMessage());
+            TestLog.info("Trying to continue with current page...");
         }
     }
     
-    private void setupDriver(String browser) {
-        switch (browser) {
-            case "chrome":
-                WebDriverManager.chromedriver().setup();
-                ChromeOptions chromeOptions = new ChromeOptions();
-                
-                // Handle notifications and permissions
-                chromeOptions.addArguments("--disable-notifications");
-                chromeOptions.addArguments("--disable-popup-blocking");
-                chromeOptions.addArguments("--disable-web-security");
-                chromeOptions.addArguments("--allow-running-insecure-content");
-                chromeOptions.addArguments("--disable-extensions");
-                chromeOptions.addArguments("--no-sandbox");
-                chromeOptions.addArguments("--disable-dev-shm-usage");
-                chromeOptions.addArguments("--remote-allow-origins=*");
-                
-                // Handle permission requests automatically
-                Map<String, Object> prefs = new HashMap<>();
-                prefs.put("profile.default_content_setting_values.notifications", 2); // Block notifications
-                prefs.put("profile.default_content_setting_values.geolocation", 2); // Block location
-                prefs.put("profile.default_content_setting_values.media_stream", 2); // Block camera/mic
-                chromeOptions.setExperimentalOption("prefs", prefs);
-                
-                driver.set(new ChromeDriver(chromeOptions));
-                break;
-                
-            case "firefox":
-                WebDriverManager.firefoxdriver().setup();
-                FirefoxOptions firefoxOptions = new FirefoxOptions();
-                
-                // Handle notifications and permissions for Firefox
-                firefoxOptions.addPreference("dom.webnotifications.enabled", false);
-                firefoxOptions.addPreference("geo.enabled", false);
-                firefoxOptions.addPreference("media.navigator.enabled", false);
-                
-                driver.set(new FirefoxDriver(firefoxOptions));
-                break;
-                
-            default:
-                throw new IllegalArgumentException("Browser not supported: " + browser);
+    // Tests that diagnose the environment itself override this to run while the circuit breaker is open
+    protected boolean requiresHealthyTarget() {
+        return true;
+    }
+    
+    protected static void waitForPageReady() {
+        new SmartWait(getDriver(), PAGE_READY_TIMEOUT).until(Conditions.documentReady());
+    }
+    
+    /**
+     * Collects the load timings of the current page, writes them to the perf directory and fails the
+     * test with the slowest resources if the page is over its {@link PerformanceBudget}.
+     */
+    protected static PageTiming assertPageWithinBudget(String page) {
+        PageTiming timing = PageTiming.collect(getDriver());
+        TestLog.info(timing.describe());
+        timing.export(Paths.get(System.getProperty("perf.dir", "target/perf")), page);
+        String overBudget = PerformanceBudget.forPage(page).report(timing);
+        if (overBudget != null) {
+            throw new AssertionError(overBudget);
         }
+        return timing;
     }
     
-    private void configureDriver() {
-        getDriver().manage().window().maximize();
-        getDriver().manage().timeouts().implicitlyWait(Duration.ofSeconds(20));
-        getDriver().manage().timeouts().pageLoadTimeout(Duration.ofSeconds(60));
-        getDriver().manage().timeouts().scriptTimeout(Duration.ofSeconds(30));
+    private void setupDriver(String browser, BrowserProfile profile) {
+        WebDriver leased = DriverPool.getInstance().lease(browser, profile);
+        session.set(leased);
+        driver.set(CommandMetrics.decorate(leased));
     }
     
-    @AfterMethod
-    public void tearDown() {
-        if (getDriver() != null) {
-            getDriver().quit();
-            driver.remove();
+    @AfterMethod(alwaysRun = true)
+    public void tearDown(ITestResult result) {
+        BrowserWatchdog.getInstance().endTest();
+        if (session.get() != null) {
+            DriverPool.getInstance().release(session.get());
+            session.remove();
         }
+        driver.remove();
+        long commands = CommandMetrics.endTest();
+        WaitBudget waitBudget = WaitBudget.finish();
+        if (waitBudget != null) {
+            TestLog.info(waitBudget.describe());
+        }
+        RunHistory.getInstance().record(historyName(result), status(result), result.getEndMillis() - result.getStartMillis(),
+                waitBudget == null ? 0 : waitBudget.getWaitedMillis(), commands);
+        TestLog.endTest();
+    }
+    
+    // Rows of a data-driven test are kept apart by a hash of their parameters, since each row has its own timing;
+    // in a browser matrix each browser's copy of a test is kept apart as well
+    private static String historyName(ITestResult result) {
+        String name = result.getTestClass().getRealClass().getSimpleName() + "." + result.getMethod().getMethodName();
+        if (result.getParameters().length > 0) {
+            name += "[" + Integer.toHexString(Arrays.deepToString(result.getParameters()).hashCode()) + "]";
+        }
+        String matrixBrowser = result.getMethod().getXmlTest() == null ? null
+                : result.getMethod().getXmlTest().getLocalParameters().get("browser");
+        return matrixBrowser != null ? name + "@" + matrixBrowser : name;
+    }
+    
+    private static String status(ITestResult result) {
+        switch (result.getStatus()) {
+            case ITestResult.SUCCESS:
+                return "PASS";
+            case ITestResult.SKIP:
+                return "SKIP";
+            default:
+                return "FAIL";
+        }
+    }
+    
+    @AfterSuite(alwaysRun = true)
+    public void shutDownSuite() {
+        DriverPool.getInstance().shutdown();
+        BrowserWatchdog.getInstance().reapOrphans();
+        LocatorCache.getInstance().save();
+        TestLog.info(LocatorCache.getInstance().describe());
+        TestLog.info(CachedLocatorFactory.describe());
+        TestLog.info(SessionCache.getInstance().describe());
+        TestLog.info(WaitBudget.describeSuite());
+        RunHistory history = RunHistory.getInstance();
+        TestLog.info(history.describe(history.finish()));
+        TestLog.info(BrowserWatchdog.getInstance().describe());
+        CommandMetrics.export(Paths.get(System.getProperty("perf.dir", "target/perf")));
+        BrowserWatchdog.getInstance().export(Paths.get(System.getProperty("perf.dir", "target/perf")));
+        TestLog.flush();
     }
 }
@@ -0,0 +1,61 @@
+package com.janitri.base;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.Map;
+
+/**
+ * How many sessions of a browser this machine can run at once, from the cores and free memory and a
+ * rough cost per session (driver plus browser processes, or heap for in-process browsers).
+ *
+ * When several browsers run side by side in a matrix, each gets an equal share of the cores and
+ * memory. {@code -Dpool.size.<browser>} overrides the estimate, e.g. -Dpool.size.firefox=2.
+ */
+public final class BrowserCapacity {
+    
+    private static final long MB = 1024 * 1024;
+    
+    // Resident memory in MB and cores kept busy by one session of a typical login-page test
+    private static final Map<String, double[]> COST = Map.of(
+            "chrome", new double[] {700, 1.0},
+            "firefox", new double[] {800, 1.0},
+            "htmlunit", new double[] {150, 0.5});
+    private static final double[] UNKNOWN_COST = {800, 1.0};
+    
+    private BrowserCapacity() {
+    }
+    
+    public static int limitFor(String browser, int browsersSharing) {
+        Integer configured = Integer.getInteger("pool.size." + browser);
+        if (configured != null) {
+            return Math.max(1, configured);
+        }
+        double[] cost = COST.getOrDefault(browser, UNKNOWN_COST);
+        double cores = Runtime.getRuntime().availableProcessors() / (double) browsersSharing;
+        double memoryMb = availableMemoryMb(browser) / (double) browsersSharing;
+        return (int) Math.max(1, Math.floor(Math.min(cores / cost[1], memoryMb / cost[0])));
+    }
+    
+    public static String describe(String browser, int browsersSharing) {
+        double[] cost = COST.getOrDefault(browser, UNKNOWN_COST);
+        return String.format("%s: %d session(s) (%d cores, %d MB %s free, ~%.0f MB and %.1f cores each, shared %d ways)",
+                browser, limitFor(browser, browsersSharing), Runtime.getRuntime().availableProcessors(),
+                availableMemoryMb(browser), DriverFactory.isInProcess(browser) ? "heap" : "memory",
+                cost[0], cost[1], browsersSharing);
+    }
+    
+    // In-process browsers live on the JVM heap; the others in free physical memory
+    @SuppressWarnings("deprecation")
+    private static long availableMemoryMb(String browser) {
+        Runtime runtime = Runtime.getRuntime();
+        if (DriverFactory.isInProcess(browser)) {
+            return (runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory())) / MB;
+        }
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getFreePhysicalMemorySize() / MB;
+        }
+        // No way to ask; assume memory is not the bottleneck
+        return Long.MAX_VALUE / MB;
+    }
+}
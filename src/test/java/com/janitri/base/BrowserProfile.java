@@ -0,0 +1,98 @@
+package com.janitri.base;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.PageLoadStrategy;
+
+/**
+ * Launch profiles applied by {@link DriverFactory} to both Chrome and Firefox.
+ *
+ * Selected with the {@code profile} suite parameter, overridden by -Dbrowser.profile:
+ *   default  - headed, maximized, normal page load, everything downloaded (previous behaviour)
+ *   headless - headless with a fixed 1366x768 viewport
+ *   lean     - headless, eager page load, 1280x800 viewport, images, web fonts and
+ *              third-party analytics blocked; intended for CI and load runs
+ *
+ * Extra hosts to block in the lean profile: -Dbrowser.blocked.hosts=host1,host2
+ */
+public enum BrowserProfile {
+    
+    DEFAULT(false, PageLoadStrategy.NORMAL, null, false),
+    HEADLESS(true, PageLoadStrategy.NORMAL, new Dimension(1366, 768), false),
+    LEAN(true, PageLoadStrategy.EAGER, new Dimension(1280, 800), true);
+    
+    private static final List<String> THIRD_PARTY_HOSTS = Arrays.asList(
+            "www.google-analytics.com",
+            "www.googletagmanager.com",
+            "stats.g.doubleclick.net",
+            "connect.facebook.net",
+            "static.hotjar.com",
+            "script.hotjar.com",
+            "fonts.googleapis.com",
+            "fonts.gstatic.com");
+    
+    private final boolean headless;
+    private final PageLoadStrategy pageLoadStrategy;
+    private final Dimension viewport;
+    private final boolean blockResources;
+    
+    BrowserProfile(boolean headless, PageLoadStrategy pageLoadStrategy, Dimension viewport, boolean blockResources) {
+        this.headless = headless;
+        this.pageLoadStrategy = pageLoadStrategy;
+        this.viewport = viewport;
+        this.blockResources = blockResources;
+    }
+    
+    public static BrowserProfile resolve(String suiteValue) {
+        return named(System.getProperty("browser.profile", suiteValue));
+    }
+    
+    // The profile with this name, ignoring -Dbrowser.profile
+    public static BrowserProfile named(String value) {
+        if (value == null || value.isBlank()) {
+            return DEFAULT;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Browser profile not supported: " + value);
+        }
+    }
+    
+    public boolean isHeadless() {
+        return headless;
+    }
+    
+    public PageLoadStrategy getPageLoadStrategy() {
+        return pageLoadStrategy;
+    }
+    
+    // Fixed window size, or null to maximize
+    public Dimension getViewport() {
+        return viewport;
+    }
+    
+    public boolean isBlockingResources() {
+        return blockResources;
+    }
+    
+    public List<String> getBlockedHosts() {
+        List<String> hosts = new ArrayList<>(THIRD_PARTY_HOSTS);
+        String extra = System.getProperty("browser.blocked.hosts", "");
+        for (String host : extra.split(",")) {
+            if (!host.isBlank()) {
+                hosts.add(host.trim());
+            }
+        }
+        return hosts;
+    }
+    
+    @Override
+    public String toString() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,340 @@
+package com.janitri.base;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.HttpCommandExecutor;
+import org.openqa.selenium.remote.RemoteWebDriver;
+
+import com.janitri.utils.TestLog;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps track of the driver and browser processes behind every session {@link DriverFactory} starts.
+ *
+ * Each session's process tree (chromedriver or geckodriver and the browser under it) is sampled
+ * in the background: resident memory from {@code /proc/<pid>/status} and CPU time from the OS.
+ * A tree over the memory or age limit is killed, and the pool replaces the dead session on its next
+ * health check. Trees still alive after {@code quit()}, or when the JVM exits, are killed as well.
+ *
+ * Processes left behind by earlier runs (a driver or an automation-flagged browser whose parent
+ * has died) are reaped when the suite starts and when it ends. Peak memory and CPU per test are
+ * reported at the end of the suite and written to {@code browser-resources.json} in the perf directory.
+ *
+ *   watchdog.enabled          - false turns tracking, limits and reaping off
+ *   watchdog.max.rss.mb       - memory limit per session tree (default 2048)
+ *   watchdog.max.age.minutes  - lifetime limit per session (default 60)
+ *   watchdog.interval.seconds - sampling interval (default 5)
+ */
+public final class BrowserWatchdog {
+    
+    private static final BrowserWatchdog INSTANCE = new BrowserWatchdog(
+            Boolean.parseBoolean(System.getProperty("watchdog.enabled", "true")),
+            Long.getLong("watchdog.max.rss.mb", 2048) * 1024 * 1024,
+            Duration.ofMinutes(Long.getLong("watchdog.max.age.minutes", 60)),
+            Long.getLong("watchdog.interval.seconds", 5));
+    
+    private static final List<String> DRIVER_NAMES = List.of("chromedriver", "geckodriver", "msedgedriver");
+    // Flags the drivers pass to the browsers they launch
+    private static final List<String> AUTOMATION_FLAGS = List.of("--enable-automation", "-marionette", "--marionette");
+    
+    private final boolean enabled;
+    private final long maxRssBytes;
+    private final Duration maxAge;
+    private final Map<WebDriver, Session> sessions = new ConcurrentHashMap<>();
+    private final ThreadLocal<TestUsage> currentTest = new ThreadLocal<>();
+    private final Set<TestUsage> runningTests = ConcurrentHashMap.newKeySet();
+    private final List<TestUsage> finishedTests = new ArrayList<>();
+    private final AtomicLong killedOverLimit = new AtomicLong();
+    private final AtomicLong killedAfterQuit = new AtomicLong();
+    private final AtomicLong orphansReaped = new AtomicLong();
+    
+    private static final class Session {
+        
+        final ProcessHandle driverProcess;
+        final long startedNanos = System.nanoTime();
+        volatile long rssBytes;
+        volatile long peakRssBytes;
+        volatile long cpuMillis;
+        
+        Session(ProcessHandle driverProcess) {
+            this.driverProcess = driverProcess;
+        }
+    }
+    
+    private static final class TestUsage {
+        
+        final String testName;
+        final Session session;
+        final long cpuAtStart;
+        long peakRssBytes;
+        long cpuMillis;
+        
+        TestUsage(String testName, Session session) {
+            this.testName = testName;
+            this.session = session;
+            this.cpuAtStart = session.cpuMillis;
+            this.peakRssBytes = session.rssBytes;
+        }
+    }
+    
+    private BrowserWatchdog(boolean enabled, long maxRssBytes, Duration maxAge, long intervalSeconds) {
+        this.enabled = enabled;
+        this.maxRssBytes = maxRssBytes;
+        this.maxAge = maxAge;
+        if (enabled) {
+            ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "browser-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sampler.scheduleWithFixedDelay(this::sampleAll, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+            Runtime.getRuntime().addShutdownHook(new Thread(this::killAll, "browser-watchdog-shutdown"));
+        }
+    }
+    
+    public static BrowserWatchdog getInstance() {
+        return INSTANCE;
+    }
+    
+    // Starts watching the processes behind a new session; in-process browsers have none
+    public void track(WebDriver webDriver) {
+        if (!enabled) {
+            return;
+        }
+        driverProcess(webDriver).ifPresent(process -> {
+            Session session = new Session(process);
+            sample(session);
+            sessions.put(webDriver, session);
+        });
+    }
+    
+    // Called after quit(); kills whatever the driver left running
+    public void untrack(WebDriver webDriver) {
+        Session session = sessions.remove(webDriver);
+        if (session == null) {
+            return;
+        }
+        if (session.driverProcess.isAlive() || session.driverProcess.descendants().anyMatch(ProcessHandle::isAlive)) {
+            // quit() returns before the driver has exited; give it a moment before calling it a leak
+            try {
+                session.driverProcess.onExit().get(2, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                killedAfterQuit.incrementAndGet();
+                TestLog.warn("Driver process " + session.driverProcess.pid() + " still running after quit, killing it");
+                kill(session.driverProcess);
+            }
+        }
+    }
+    
+    public void startTest(String testName, WebDriver webDriver) {
+        Session session = webDriver == null ? null : sessions.get(webDriver);
+        if (session != null) {
+            sample(session);
+            TestUsage usage = new TestUsage(testName, session);
+            currentTest.set(usage);
+            runningTests.add(usage);
+        }
+    }
+    
+    public void endTest() {
+        TestUsage usage = currentTest.get();
+        currentTest.remove();
+        if (usage == null) {
+            return;
+        }
+        runningTests.remove(usage);
+        sample(usage.session);
+        usage.peakRssBytes = Math.max(usage.peakRssBytes, usage.session.rssBytes);
+        usage.cpuMillis = usage.session.cpuMillis - usage.cpuAtStart;
+        synchronized (finishedTests) {
+            finishedTests.add(usage);
+        }
+    }
+    
+    private void sampleAll() {
+        for (Map.Entry<WebDriver, Session> entry : sessions.entrySet()) {
+            Session session = entry.getValue();
+            sample(session);
+            long ageMillis = (System.nanoTime() - session.startedNanos) / 1_000_000;
+            String reason = null;
+            if (session.rssBytes > maxRssBytes) {
+                reason = String.format("using %d MB, over the %d MB limit", session.rssBytes >> 20, maxRssBytes >> 20);
+            } else if (ageMillis > maxAge.toMillis()) {
+                reason = "running for " + ageMillis / 60_000 + " min, over the " + maxAge.toMinutes() + " min limit";
+            }
+            if (reason != null && sessions.remove(entry.getKey(), session)) {
+                killedOverLimit.incrementAndGet();
+                TestLog.warn("Killing browser session (driver pid " + session.driverProcess.pid() + ") " + reason);
+                kill(session.driverProcess);
+            }
+        }
+        // A test's peak also covers the samples taken while it ran, not just its start and end
+        for (TestUsage usage : runningTests) {
+            usage.peakRssBytes = Math.max(usage.peakRssBytes, usage.session.rssBytes);
+        }
+    }
+    
+    private static void sample(Session session) {
+        long rss = 0;
+        long cpu = 0;
+        for (ProcessHandle process : tree(session.driverProcess)) {
+            rss += rssBytes(process.pid());
+            cpu += process.info().totalCpuDuration().map(Duration::toMillis).orElse(0L);
+        }
+        session.rssBytes = rss;
+        session.peakRssBytes = Math.max(session.peakRssBytes, rss);
+        session.cpuMillis = Math.max(session.cpuMillis, cpu);
+    }
+    
+    /**
+     * Kills drivers and automation browsers of this user whose parent process is gone, e.g. after
+     * a JVM was killed mid-run. Sessions of other running suites still have their JVM as a parent
+     * and are left alone.
+     */
+    public void reapOrphans() {
+        if (!enabled) {
+            return;
+        }
+        String user = System.getProperty("user.name");
+        List<ProcessHandle> orphans = ProcessHandle.allProcesses()
+                .filter(process -> process.pid() != ProcessHandle.current().pid())
+                .filter(process -> process.info().user().map(owner -> owner.equals(user) || owner.endsWith("\\" + user)).orElse(false))
+                .filter(BrowserWatchdog::isOrphaned)
+                .filter(BrowserWatchdog::isAutomationProcess)
+                .collect(Collectors.toList());
+        for (ProcessHandle orphan : orphans) {
+            TestLog.info("Reaping orphaned " + name(orphan) + " process " + orphan.pid());
+            kill(orphan);
+            orphansReaped.incrementAndGet();
+        }
+    }
+    
+    private static boolean isOrphaned(ProcessHandle process) {
+        Optional<ProcessHandle> parent = process.parent();
+        return parent.isEmpty() || parent.get().pid() == 1 || !parent.get().isAlive();
+    }
+    
+    private static boolean isAutomationProcess(ProcessHandle process) {
+        if (DRIVER_NAMES.contains(name(process))) {
+            return true;
+        }
+        String[] arguments = process.info().arguments().orElse(new String[0]);
+        return Stream.of(arguments).anyMatch(AUTOMATION_FLAGS::contains);
+    }
+    
+    private static String name(ProcessHandle process) {
+        String command = process.info().command().orElse("");
+        String fileName = Paths.get(command).getFileName() == null ? command : Paths.get(command).getFileName().toString();
+        return fileName.endsWith(".exe") ? fileName.substring(0, fileName.length() - 4) : fileName;
+    }
+    
+    private void killAll() {
+        sessions.values().forEach(session -> kill(session.driverProcess));
+        sessions.clear();
+    }
+    
+    // Children first, so nothing gets re-parented and left behind while the tree is torn down
+    private static void kill(ProcessHandle root) {
+        List<ProcessHandle> descendants = root.descendants().collect(Collectors.toList());
+        root.destroyForcibly();
+        descendants.forEach(ProcessHandle::destroyForcibly);
+    }
+    
+    private static List<ProcessHandle> tree(ProcessHandle root) {
+        List<ProcessHandle> tree = new ArrayList<>();
+        if (root.isAlive()) {
+            tree.add(root);
+        }
+        root.descendants().filter(ProcessHandle::isAlive).forEach(tree::add);
+        return tree;
+    }
+    
+    // VmRSS from /proc; 0 where there is no /proc or the process is gone
+    private static long rssBytes(long pid) {
+        try (Stream<String> lines = Files.lines(Paths.get("/proc", String.valueOf(pid), "status"))) {
+            return lines.filter(line -> line.startsWith("VmRSS:"))
+                    .map(line -> Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024)
+                    .findFirst()
+                    .orElse(0L);
+        } catch (IOException | RuntimeException e) {
+            return 0;
+        }
+    }
+    
+    // The driver service is a child of this JVM listening on the port the session talks to
+    private static Optional<ProcessHandle> driverProcess(WebDriver webDriver) {
+        if (!(webDriver instanceof RemoteWebDriver)) {
+            return Optional.empty();
+        }
+        CommandExecutor executor = ((RemoteWebDriver) webDriver).getCommandExecutor();
+        if (!(executor instanceof HttpCommandExecutor)) {
+            return Optional.empty();
+        }
+        String portFlag = "--port=" + ((HttpCommandExecutor) executor).getAddressOfRemoteServer().getPort();
+        return ProcessHandle.current().children()
+                .filter(child -> Stream.of(child.info().arguments().orElse(new String[0])).anyMatch(portFlag::equals))
+                .findFirst();
+    }
+    
+    public String describe() {
+        List<TestUsage> tests;
+        synchronized (finishedTests) {
+            tests = new ArrayList<>(finishedTests);
+        }
+        StringBuilder report = new StringBuilder(String.format("=== Browser Resources ===%n"
+                        + "Sessions still tracked: %d, killed over limit: %d, killed after quit: %d, orphans reaped: %d",
+                sessions.size(), killedOverLimit.get(), killedAfterQuit.get(), orphansReaped.get()));
+        if (!tests.isEmpty()) {
+            report.append(String.format("%n%-60s %12s %10s", "test", "peak RSS MB", "CPU ms"));
+            for (TestUsage usage : tests) {
+                report.append(String.format("%n%-60s %12.1f %10d", usage.testName, usage.peakRssBytes / 1048576.0, usage.cpuMillis));
+            }
+        }
+        return report.toString();
+    }
+    
+    public void export(Path directory) {
+        List<Map<String, Object>> tests = new ArrayList<>();
+        synchronized (finishedTests) {
+            for (TestUsage usage : finishedTests) {
+                Map<String, Object> json = new LinkedHashMap<>();
+                json.put("test", usage.testName);
+                json.put("peakRssBytes", usage.peakRssBytes);
+                json.put("cpuMillis", usage.cpuMillis);
+                tests.add(json);
+            }
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("killedOverLimit", killedOverLimit.get());
+        report.put("killedAfterQuit", killedAfterQuit.get());
+        report.put("orphansReaped", orphansReaped.get());
+        report.put("tests", tests);
+        Path file = directory.resolve("browser-resources.json");
+        try {
+            Files.createDirectories(directory);
+            Files.write(file, new Json().toJson(report).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            TestLog.warn("Could not write browser resource report " + file + ": " + e.getMessage());
+        }
+    }
+}
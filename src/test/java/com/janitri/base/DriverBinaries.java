@@ -0,0 +1,133 @@
+package com.janitri.base;
+
+import io.github.bonigarcia.wdm.WebDriverManager;
+
+import com.janitri.utils.TestLog;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the driver binary (chromedriver, geckodriver) for each browser once per JVM.
+ *
+ * The resolved path is kept in a small properties file and reused by later runs, so WebDriverManager's
+ * browser version detection and cache lookups only run when there is no fresh entry, the binary has
+ * gone, or a session could not be created with it ({@link #invalidate}).
+ *
+ * Configuration (system properties):
+ *   driver.cache.file      - cache file (default .cache/driver-paths.properties)
+ *   driver.cache.ttl.hours - re-resolve entries older than this (default 24)
+ */
+public final class DriverBinaries {
+    
+    private static final Path CACHE_FILE = Paths.get(System.getProperty("driver.cache.file", ".cache/driver-paths.properties"));
+    private static final long TTL_MILLIS = TimeUnit.HOURS.toMillis(Long.getLong("driver.cache.ttl.hours", 24));
+    
+    private static final Map<String, String> resolved = new ConcurrentHashMap<>();
+    
+    private DriverBinaries() {
+    }
+    
+    // Makes the driver binary for the browser available to Selenium and returns its path
+    public static String resolve(String browser) {
+        if (DriverFactory.isInProcess(browser)) {
+            return null;
+        }
+        return resolved.computeIfAbsent(browser, DriverBinaries::lookup);
+    }
+    
+    // Forgets the path for the browser, e.g. after the browser was upgraded and the driver no longer matches
+    public static void invalidate(String browser) {
+        resolved.remove(browser);
+        synchronized (DriverBinaries.class) {
+            Properties cache = load();
+            if (cache.remove(browser + ".path") != null) {
+                cache.remove(browser + ".resolved");
+                store(cache);
+            }
+        }
+    }
+    
+    private static String lookup(String browser) {
+        String property = systemProperty(browser);
+        synchronized (DriverBinaries.class) {
+            Properties cache = load();
+            String path = cache.getProperty(browser + ".path");
+            long age = System.currentTimeMillis() - Long.parseLong(cache.getProperty(browser + ".resolved", "0"));
+            if (path != null && age < TTL_MILLIS && Files.isExecutable(Paths.get(path))) {
+                System.setProperty(property, path);
+                TestLog.info("Using cached " + browser + " driver: " + path);
+                return path;
+            }
+            
+            long start = System.nanoTime();
+            WebDriverManager manager = manager(browser);
+            manager.setup();
+            path = manager.getDownloadedDriverPath();
+            TestLog.info("Resolved " + browser + " driver " + manager.getDownloadedDriverVersion() + " in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms: " + path);
+            if (path != null) {
+                System.setProperty(property, path);
+                cache.setProperty(browser + ".path", path);
+                cache.setProperty(browser + ".resolved", String.valueOf(System.currentTimeMillis()));
+                store(cache);
+            }
+            return path;
+        }
+    }
+    
+    private static WebDriverManager manager(String browser) {
+        switch (browser) {
+            case "chrome":
+                return WebDriverManager.chromedriver();
+            case "firefox":
+                return WebDriverManager.firefoxdriver();
+            default:
+                throw new IllegalArgumentException("Browser not supported: " + browser);
+        }
+    }
+    
+    private static String systemProperty(String browser) {
+        switch (browser) {
+            case "chrome":
+                return "webdriver.chrome.driver";
+            case "firefox":
+                return "webdriver.gecko.driver";
+            default:
+                throw new IllegalArgumentException("Browser not supported: " + browser);
+        }
+    }
+    
+    private static Properties load() {
+        Properties cache = new Properties();
+        if (Files.isRegularFile(CACHE_FILE)) {
+            try (InputStream in = Files.newInputStream(CACHE_FILE)) {
+                cache.load(in);
+            } catch (IOException e) {
+                TestLog.warn("Could not read driver cache " + CACHE_FILE + ": " + e.getMessage());
+            }
+        }
+        return cache;
+    }
+    
+    private static void store(Properties cache) {
+        try {
+            if (CACHE_FILE.getParent() != null) {
+                Files.createDirectories(CACHE_FILE.getParent());
+            }
+            try (OutputStream out = Files.newOutputStream(CACHE_FILE)) {
+                cache.store(out, "Resolved driver binaries");
+            }
+        } catch (IOException e) {
+            TestLog.warn("Could not write driver cache " + CACHE_FILE + ": " + e.getMessage());
+        }
+    }
+}
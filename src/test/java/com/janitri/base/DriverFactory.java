@@ -0,0 +1,180 @@
+package com.janitri.base;
+
+import org.htmlunit.BrowserVersion;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.firefox.FirefoxDriver;
+import org.openqa.selenium.firefox.FirefoxOptions;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
+import org.openqa.selenium.logging.LogType;
+import org.openqa.selenium.logging.LoggingPreferences;
+
+import com.janitri.metrics.PageTiming;
+import com.janitri.utils.TestLog;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * Launches and configures new browser sessions. Tests should not call this directly;
+ * sessions are handed out by {@link DriverPool}.
+ *
+ * Besides chrome and firefox, {@code htmlunit} runs an in-process HtmlUnit browser with JavaScript
+ * enabled. It starts in milliseconds and needs no driver binary, but renders nothing, so only tests
+ * marked {@link NonVisual} run on it.
+ */
+public final class DriverFactory {
+    
+    private DriverFactory() {
+    }
+    
+    private static final List<String> FONT_URL_PATTERNS = Arrays.asList("*.woff", "*.woff2", "*.ttf", "*.otf", "*.eot");
+    
+    // True for browsers that run inside this JVM rather than as a separate driver process
+    public static boolean isInProcess(String browser) {
+        return "htmlunit".equals(browser);
+    }
+    
+    public static WebDriver create(String browser, BrowserProfile profile) {
+        DriverBinaries.resolve(browser);
+        try {
+            return launch(browser, profile);
+        } catch (SessionNotCreatedException e) {
+            // Usually a cached driver that no longer matches an upgraded browser; resolve again once
+            TestLog.warn("Session not created with the cached " + browser + " driver, resolving it again: " + e.getMessage());
+            DriverBinaries.invalidate(browser);
+            DriverBinaries.resolve(browser);
+            return launch(browser, profile);
+        }
+    }
+    
+    private static WebDriver launch(String browser, BrowserProfile profile) {
+        WebDriver webDriver;
+        switch (browser) {
+            case "chrome":
+                ChromeOptions chromeOptions = new ChromeOptions();
+                
+                // Handle notifications and permissions
+                chromeOptions.addArguments("--disable-notifications");
+                chromeOptions.addArguments("--disable-popup-blocking");
+                chromeOptions.addArguments("--disable-web-security");
+                chromeOptions.addArguments("--allow-running-insecure-content");
+                chromeOptions.addArguments("--disable-extensions");
+                chromeOptions.addArguments("--no-sandbox");
+                chromeOptions.addArguments("--disable-dev-shm-usage");
+                chromeOptions.addArguments("--remote-allow-origins=*");
+                
+                // Handle permission requests automatically
+                Map<String, Object> prefs = new HashMap<>();
+                prefs.put("profile.default_content_setting_values.notifications", 2); // Block notifications
+                prefs.put("profile.default_content_setting_values.geolocation", 2); // Block location
+                prefs.put("profile.default_content_setting_values.media_stream", 2); // Block camera/mic
+                
+                if (profile.isHeadless()) {
+                    chromeOptions.addArguments("--headless=new");
+                }
+                if (profile.getViewport() != null) {
+                    chromeOptions.addArguments("--window-size=" + profile.getViewport().getWidth() + "," + profile.getViewport().getHeight());
+                }
+                chromeOptions.setPageLoadStrategy(profile.getPageLoadStrategy());
+                if (profile.isBlockingResources()) {
+                    prefs.put("profile.managed_default_content_settings.images", 2); // Block images
+                }
+                chromeOptions.setExperimentalOption("prefs", prefs);
+                if (PageTiming.NETWORK_CAPTURE) {
+                    // DevTools network events for per-request timings in PageTiming
+                    LoggingPreferences logging = new LoggingPreferences();
+                    logging.enable(LogType.PERFORMANCE, Level.ALL);
+                    chromeOptions.setCapability(ChromeOptions.LOGGING_PREFS, logging);
+                }
+                
+                webDriver = new ChromeDriver(chromeOptions);
+                break;
+                
+            case "firefox":
+                FirefoxOptions firefoxOptions = new FirefoxOptions();
+                
+                // Handle notifications and permissions for Firefox
+                firefoxOptions.addPreference("dom.webnotifications.enabled", false);
+                firefoxOptions.addPreference("geo.enabled", false);
+                firefoxOptions.addPreference("media.navigator.enabled", false);
+                
+                if (profile.isHeadless()) {
+                    firefoxOptions.addArguments("-headless");
+                }
+                if (profile.getViewport() != null) {
+                    firefoxOptions.addArguments("--width=" + profile.getViewport().getWidth(), "--height=" + profile.getViewport().getHeight());
+                }
+                firefoxOptions.setPageLoadStrategy(profile.getPageLoadStrategy());
+                if (profile.isBlockingResources()) {
+                    firefoxOptions.addPreference("permissions.default.image", 2); // Block images
+                    firefoxOptions.addPreference("gfx.downloadable_fonts.enabled", false); // Block web fonts
+                    firefoxOptions.addPreference("privacy.trackingprotection.enabled", true);
+                    // Resolve third-party hosts locally so their requests fail immediately
+                    firefoxOptions.addPreference("network.dns.localDomains", String.join(",", profile.getBlockedHosts()));
+                }
+                
+                webDriver = new FirefoxDriver(firefoxOptions);
+                break;
+                
+            case "htmlunit":
+                // Profiles only matter for viewport here: HtmlUnit is always headless and never downloads images
+                webDriver = new HtmlUnitDriver(BrowserVersion.CHROME, true);
+                break;
+                
+            default:
+                throw new IllegalArgumentException("Browser not supported: " + browser);
+        }
+        
+        // Tracked before anything else can fail, so the watchdog knows the processes either way
+        BrowserWatchdog.getInstance().track(webDriver);
+        try {
+            if (webDriver instanceof ChromeDriver && profile.isBlockingResources()) {
+                blockChromeRequests((ChromeDriver) webDriver, profile);
+            }
+            configure(webDriver, profile);
+        } catch (RuntimeException e) {
+            // Nobody else holds this session yet; without a quit here its driver and browser outlive the run
+            try {
+                webDriver.quit();
+            } catch (RuntimeException quitFailure) {
+                e.addSuppressed(quitFailure);
+            }
+            BrowserWatchdog.getInstance().untrack(webDriver);
+            throw e;
+        }
+        return webDriver;
+    }
+    
+    // Chrome has no preference for fonts or arbitrary hosts, so they are blocked through DevTools
+    private static void blockChromeRequests(ChromeDriver chromeDriver, BrowserProfile profile) {
+        List<String> patterns = new ArrayList<>(FONT_URL_PATTERNS);
+        for (String host : profile.getBlockedHosts()) {
+            patterns.add("*://" + host + "/*");
+            patterns.add("*://" + host + ":*");
+        }
+        chromeDriver.executeCdpCommand("Network.enable", new HashMap<>());
+        Map<String, Object> blocked = new HashMap<>();
+        blocked.put("urls", patterns);
+        chromeDriver.executeCdpCommand("Network.setBlockedURLs", blocked);
+    }
+    
+    private static void configure(WebDriver webDriver, BrowserProfile profile) {
+        if (profile.getViewport() != null) {
+            webDriver.manage().window().setSize(profile.getViewport());
+        } else {
+            webDriver.manage().window().maximize();
+        }
+        // No implicit wait: it would stack with every explicit SmartWait and multiply miss costs
+        webDriver.manage().timeouts().implicitlyWait(Duration.ZERO);
+        webDriver.manage().timeouts().pageLoadTimeout(Duration.ofSeconds(60));
+        webDriver.manage().timeouts().scriptTimeout(Duration.ofSeconds(30));
+    }
+}
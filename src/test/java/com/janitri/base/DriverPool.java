@@ -0,0 +1,298 @@
+package com.janitri.base;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+
+import com.janitri.metrics.PageTiming;
+import com.janitri.utils.TestLog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded pool of warm browser sessions, keyed by browser name and launch profile.
+ *
+ * A test leases a session in {@code BaseTest.setUp} and returns it in {@code tearDown}. Returned
+ * sessions are reset (cookies, web storage, extra windows, {@code about:blank}) and parked for the
+ * next test; sessions that fail the reset or the health check on lease are quit and replaced.
+ *
+ * Configuration (system properties):
+ *   pool.enabled - false quits every session on release, i.e. the old fresh-browser-per-test behaviour
+ *   pool.size    - max sessions per browser, leased plus idle (default: half the available cores)
+ *   pool.size.<browser> - the same for one browser; set per browser for a browser matrix
+ */
+public final class DriverPool {
+    
+    private static final DriverPool INSTANCE = new DriverPool(
+            Integer.getInteger("pool.size", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+            Boolean.parseBoolean(System.getProperty("pool.enabled", "true")));
+    
+    private final int maxPerBrowser;
+    private final boolean reuseEnabled;
+    
+    private final Map<String, BlockingDeque<WebDriver>> idle = new ConcurrentHashMap<>();
+    private final Map<String, Semaphore> permits = new ConcurrentHashMap<>();
+    private final Map<WebDriver, String> leased = new ConcurrentHashMap<>();
+    private final AtomicBoolean shutDown = new AtomicBoolean();
+    
+    private final AtomicLong leases = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong prewarmed = new AtomicLong();
+    
+    private DriverPool(int maxPerBrowser, boolean reuseEnabled) {
+        this.maxPerBrowser = Math.max(1, maxPerBrowser);
+        this.reuseEnabled = reuseEnabled;
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "driver-pool-shutdown"));
+    }
+    
+    public static DriverPool getInstance() {
+        return INSTANCE;
+    }
+    
+    public WebDriver lease(String browserName, BrowserProfile profile) {
+        String browser = browserName + "/" + profile;
+        Semaphore semaphore = permits.computeIfAbsent(browser, key -> new Semaphore(limit(browserName), true));
+        if (!semaphore.tryAcquire()) {
+            waits.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                semaphore.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a " + browser + " session", e);
+            } finally {
+                waitNanos.addAndGet(System.nanoTime() - start);
+            }
+        }
+        leases.incrementAndGet();
+        
+        try {
+            WebDriver webDriver;
+            while ((webDriver = idleQueue(browser).pollFirst()) != null) {
+                if (isHealthy(webDriver)) {
+                    reused.incrementAndGet();
+                    leased.put(webDriver, browser);
+                    return webDriver;
+                }
+                evict(webDriver);
+            }
+            
+            webDriver = DriverFactory.create(browserName, profile);
+            created.incrementAndGet();
+            leased.put(webDriver, browser);
+            return webDriver;
+        } catch (RuntimeException e) {
+            semaphore.release();
+            throw e;
+        }
+    }
+    
+    /**
+     * Starts up to {@code count} sessions in background threads and parks them as idle, so the first
+     * tests lease a warm browser instead of launching one. Returns immediately; a test that leases
+     * while a browser is still starting waits for its permit and then picks it up from the idle queue.
+     */
+    public void prewarm(String browserName, BrowserProfile profile, int count) {
+        String browser = browserName + "/" + profile;
+        Semaphore semaphore = permits.computeIfAbsent(browser, key -> new Semaphore(limit(browserName), true));
+        int sessions = Math.min(count, limit(browserName));
+        if (sessions <= 0) {
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(sessions, runnable -> {
+            Thread thread = new Thread(runnable, "driver-prewarm-" + browser);
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < sessions; i++) {
+            executor.execute(() -> {
+                // Never compete with tests that are already waiting for a session
+                if (shutDown.get() || !semaphore.tryAcquire()) {
+                    return;
+                }
+                try {
+                    WebDriver webDriver = DriverFactory.create(browserName, profile);
+                    created.incrementAndGet();
+                    idleQueue(browser).offerLast(webDriver);
+                    prewarmed.incrementAndGet();
+                    // The suite may have finished while the browser was starting
+                    if (shutDown.get() && idleQueue(browser).remove(webDriver)) {
+                        quietlyQuit(webDriver);
+                    }
+                } catch (RuntimeException e) {
+                    TestLog.warn("Could not pre-warm a " + browser + " session: " + e.getMessage());
+                } finally {
+                    semaphore.release();
+                }
+            });
+        }
+        executor.shutdown();
+    }
+    
+    public void release(WebDriver webDriver) {
+        String browser = leased.remove(webDriver);
+        if (browser == null) {
+            quietlyQuit(webDriver);
+            return;
+        }
+        
+        try {
+            if (!reuseEnabled || shutDown.get()) {
+                quietlyQuit(webDriver);
+            } else if (reset(webDriver)) {
+                // LIFO keeps the most recently used (warmest) session at the head
+                idleQueue(browser).offerFirst(webDriver);
+            } else {
+                evict(webDriver);
+            }
+        } finally {
+            permits.get(browser).release();
+        }
+    }
+    
+    // Drops a leased session that the caller knows is broken, without attempting a reset.
+    public void invalidate(WebDriver webDriver) {
+        String browser = leased.remove(webDriver);
+        evict(webDriver);
+        if (browser != null) {
+            permits.get(browser).release();
+        }
+    }
+    
+    public void shutdown() {
+        if (!shutDown.compareAndSet(false, true)) {
+            return;
+        }
+        List<WebDriver> all = new ArrayList<>(leased.keySet());
+        leased.clear();
+        for (BlockingDeque<WebDriver> queue : idle.values()) {
+            queue.drainTo(all);
+        }
+        all.forEach(DriverPool::quietlyQuit);
+        TestLog.info(describe());
+    }
+    
+    private boolean reset(WebDriver webDriver) {
+        try {
+            // Close anything the test popped open and return to the original window
+            List<String> handles = new ArrayList<>(webDriver.getWindowHandles());
+            if (handles.size() > 1) {
+                for (String handle : handles.subList(1, handles.size())) {
+                    webDriver.switchTo().window(handle).close();
+                }
+            }
+            webDriver.switchTo().window(handles.get(0));
+            
+            webDriver.manage().deleteAllCookies();
+            if (PageTiming.NETWORK_CAPTURE && webDriver instanceof ChromeDriver) {
+                PageTiming.discardNetworkLog(webDriver);
+            }
+            // Storage belongs to the current origin, so clear it before leaving the page
+            ((JavascriptExecutor) webDriver).executeScript(
+                    "try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) {}");
+            webDriver.get("about:blank");
+            return true;
+        } catch (RuntimeException e) {
+            TestLog.info("Driver session failed reset, evicting: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    private boolean isHealthy(WebDriver webDriver) {
+        try {
+            webDriver.getWindowHandle();
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+    
+    private void evict(WebDriver webDriver) {
+        evictions.incrementAndGet();
+        quietlyQuit(webDriver);
+    }
+    
+    private int limit(String browserName) {
+        return Math.max(1, Integer.getInteger("pool.size." + browserName, maxPerBrowser));
+    }
+    
+    private BlockingDeque<WebDriver> idleQueue(String browser) {
+        return idle.computeIfAbsent(browser, key -> new LinkedBlockingDeque<>());
+    }
+    
+    private static void quietlyQuit(WebDriver webDriver) {
+        try {
+            webDriver.quit();
+        } catch (RuntimeException e) {
+            // Session is already gone
+        }
+        BrowserWatchdog.getInstance().untrack(webDriver);
+    }
+    
+    public long getLeaseCount() {
+        return leases.get();
+    }
+    
+    public long getReuseCount() {
+        return reused.get();
+    }
+    
+    public long getCreatedCount() {
+        return created.get();
+    }
+    
+    public long getWaitCount() {
+        return waits.get();
+    }
+    
+    public long getWaitMillis() {
+        return waitNanos.get() / 1_000_000;
+    }
+    
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+    
+    public long getPrewarmedCount() {
+        return prewarmed.get();
+    }
+    
+    public double getReuseRatio() {
+        long total = leases.get();
+        return total == 0 ? 0.0 : (double) reused.get() / total;
+    }
+    
+    public int getMaxPerBrowser() {
+        return maxPerBrowser;
+    }
+    
+    public String describe() {
+        // Limits of the browsers actually used, which may differ per browser in a matrix run
+        String limits = permits.keySet().stream().sorted()
+                .map(browser -> browser + "=" + limit(browser.substring(0, browser.indexOf('/'))))
+                .collect(Collectors.joining(", "));
+        return String.format("=== Driver Pool ===%n"
+                        + "Max sessions per browser: %s%n"
+                        + "Leases: %d (reused: %d, created: %d, pre-warmed: %d)%n"
+                        + "Waits for a free session: %d (%d ms total)%n"
+                        + "Evictions: %d%n"
+                        + "Reuse ratio: %.2f",
+                limits.isEmpty() ? String.valueOf(maxPerBrowser) : limits, getLeaseCount(), getReuseCount(), getCreatedCount(), getPrewarmedCount(),
+                getWaitCount(), getWaitMillis(), getEvictionCount(), getReuseRatio());
+    }
+}
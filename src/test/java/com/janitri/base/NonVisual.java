@@ -0,0 +1,18 @@
+package com.janitri.base;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a test method, or every test in a class, as checking only the DOM and page behaviour, not
+ * rendering, so it can run on the in-process {@code htmlunit} browser.
+ *
+ * When the suite runs with -Dbrowser=htmlunit, {@code NonVisualListener} leaves unmarked tests out,
+ * so layout and other visual checks stay on Chrome and Firefox.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface NonVisual {
+}
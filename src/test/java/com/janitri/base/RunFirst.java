@@ -0,0 +1,20 @@
+package com.janitri.base;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a test method, or every test in a class, that must run before the scheduled tests of its
+ * {@code <test>}, whatever their durations, e.g. the connectivity check the rest of the suite
+ * relies on. Honoured by {@code DurationScheduler}.
+ *
+ * It orders methods within a {@code <test>} only: when {@code <test>}s run in parallel (parallel=tests
+ * or a browser matrix), other {@code <test>}s start alongside this one. What the suite actually relies
+ * on, the target being reachable, is still checked before any test by {@code PreflightListener}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface RunFirst {
+}
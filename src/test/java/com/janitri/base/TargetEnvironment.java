@@ -0,0 +1,63 @@
+package com.janitri.base;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+
+import com.janitri.server.StandInServer;
+import com.janitri.utils.TestLog;
+
+/**
+ * Resolves the application URL the suite runs against.
+ *
+ *   -Dtarget.env=dev      the shared dev environment (default)
+ *   -Dtarget.env=standin  an in-process {@link StandInServer}, started on first use and stopped on JVM exit
+ *   -Dbase.url=...        any other URL; takes precedence over target.env
+ *
+ * Stand-in port: -Dstandin.port (default 0, a free port).
+ */
+public final class TargetEnvironment {
+    
+    public static final String DEV_URL = "https://dev-dash.janitri.in/";
+    
+    private static StandInServer standInServer;
+    
+    private TargetEnvironment() {
+    }
+    
+    public static String name() {
+        return System.getProperty("target.env", "dev").trim().toLowerCase(Locale.ROOT);
+    }
+    
+    public static boolean isStandIn() {
+        return System.getProperty("base.url") == null && "standin".equals(name());
+    }
+    
+    public static String baseUrl() {
+        String override = System.getProperty("base.url");
+        if (override != null && !override.isBlank()) {
+            return override.endsWith("/") ? override : override + "/";
+        }
+        switch (name()) {
+            case "dev":
+                return DEV_URL;
+            case "standin":
+                return standInServer().getBaseUrl();
+            default:
+                throw new IllegalArgumentException("Target environment not supported: " + name());
+        }
+    }
+    
+    public static synchronized StandInServer standInServer() {
+        if (standInServer == null) {
+            try {
+                standInServer = StandInServer.start(Integer.getInteger("standin.port", 0));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not start the stand-in login server", e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(standInServer::stop, "stand-in-server-shutdown"));
+            TestLog.info("Stand-in login server running at " + standInServer.getBaseUrl());
+        }
+        return standInServer;
+    }
+}
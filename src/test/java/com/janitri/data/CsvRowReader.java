@@ -0,0 +1,115 @@
+package com.janitri.data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Streams rows of a comma-separated file. Fields may be quoted, with {@code ""} for a literal quote
+ * and line breaks allowed inside quotes; lines starting with {@code #} are comments.
+ */
+public final class CsvRowReader implements RowReader {
+    
+    private final BufferedReader reader;
+    private List<String> nextRow;
+    private int lineNumber;
+    private int rowNumber;
+    
+    private CsvRowReader(BufferedReader reader) {
+        this.reader = reader;
+        this.nextRow = read();
+    }
+    
+    public static CsvRowReader open(Path file) throws IOException {
+        return new CsvRowReader(Files.newBufferedReader(file, StandardCharsets.UTF_8));
+    }
+    
+    @Override
+    public boolean hasNext() {
+        return nextRow != null;
+    }
+    
+    @Override
+    public List<String> next() {
+        if (nextRow == null) {
+            throw new NoSuchElementException();
+        }
+        List<String> row = nextRow;
+        rowNumber = lineNumber;
+        nextRow = read();
+        return row;
+    }
+    
+    @Override
+    public int getRowNumber() {
+        return rowNumber;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+    
+    private List<String> read() {
+        try {
+            String line;
+            do {
+                line = reader.readLine();
+                lineNumber++;
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank() || line.startsWith("#"));
+            
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i == line.length()) {
+                    if (!quoted) {
+                        break;
+                    }
+                    // Quoted field continues on the next line
+                    String continuation = reader.readLine();
+                    if (continuation == null) {
+                        break;
+                    }
+                    lineNumber++;
+                    field.append('\n');
+                    line = continuation;
+                    i = 0;
+                    continue;
+                }
+                char c = line.charAt(i++);
+                if (quoted) {
+                    if (c == '"' && i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
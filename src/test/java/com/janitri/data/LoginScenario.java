@@ -0,0 +1,183 @@
+package com.janitri.data;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+import com.janitri.base.TargetEnvironment;
+import com.janitri.server.StandInServer;
+
+/**
+ * A {@link TestCase} mapped onto login form actions: what to type into the user ID and password
+ * fields, and which outcomes of submitting the form count as a pass.
+ *
+ * Only cases whose steps end in clicking Login can be mapped; {@link #from} returns null for the rest
+ * (UI, session and compatibility checks). The Test Data column is either explicit, e.g.
+ * {@code user=admin;password=<valid>} where {@code <valid>} stands for the valid credential, or the
+ * spreadsheet's wording ("Valid User ID, Invalid Password", "Empty fields", "500+ character string",
+ * or a literal payload typed into the user ID).
+ *
+ * Valid credentials: -Dlogin.user / -Dlogin.password, defaulting to the stand-in server's demo account
+ * when -Dtarget.env=standin. Without them, cases that expect a successful login are skipped.
+ */
+public final class LoginScenario {
+    
+    public enum Outcome {
+        // Left the login page
+        LOGGED_IN,
+        // Stayed on the login page with an error message
+        REJECTED,
+        // Login button disabled, nothing submitted
+        BLOCKED,
+        // Submitted, but neither an error nor a navigation followed
+        NO_RESPONSE
+    }
+    
+    public static final String INVALID_USER = "invalidUser123";
+    public static final String INVALID_PASSWORD = "invalidPassword123";
+    private static final String VALID = "<valid>";
+    private static final int LONG_INPUT_LENGTH = 512;
+    
+    private final TestCase testCase;
+    private final String userId;
+    private final String password;
+    private final Set<Outcome> expected;
+    
+    private LoginScenario(TestCase testCase, String userId, String password, Set<Outcome> expected) {
+        this.testCase = testCase;
+        this.userId = userId;
+        this.password = password;
+        this.expected = expected;
+    }
+    
+    public static LoginScenario from(TestCase testCase) {
+        if (!normalize(testCase.getSteps()).contains("click login")) {
+            return null;
+        }
+        Set<Outcome> expected = expectedOutcomes(normalize(testCase.getExpectedResult()));
+        if (expected == null) {
+            return null;
+        }
+        
+        String data = testCase.getTestData();
+        String lower = normalize(data);
+        String steps = normalize(testCase.getSteps());
+        String user;
+        String pass;
+        if (lower.contains("user=") || lower.contains("password=")) {
+            user = explicitValue(data, "user");
+            pass = explicitValue(data, "password");
+        } else if (lower.contains("empty fields")) {
+            user = "";
+            pass = "";
+        } else if (lower.contains("user id") || lower.contains("password")) {
+            // "Valid User ID, Invalid Password"; "Invalid User ID & Password" qualifies both
+            String[] parts = lower.split(",");
+            String userPart = parts[0];
+            String passwordPart = parts.length > 1 ? parts[1] : lower.contains("&") ? userPart : "";
+            user = qualified(userPart, VALID, INVALID_USER);
+            pass = qualified(passwordPart, VALID, INVALID_PASSWORD);
+        } else if (lower.contains("character string")) {
+            String longInput = "x".repeat(LONG_INPUT_LENGTH);
+            boolean longUser = steps.contains("long user id");
+            user = longUser ? longInput : VALID;
+            pass = longUser ? VALID : longInput;
+        } else if (lower.contains("single character")) {
+            user = "a";
+            pass = "b";
+        } else if (lower.isEmpty() || lower.equals("n/a") || lower.startsWith("any ") || lower.contains("credentials")) {
+            return null;
+        } else {
+            // A literal payload for the user ID, e.g. ' OR '1'='1 or a quoted " username "
+            user = data.length() > 1 && data.startsWith("\"") && data.endsWith("\"") ? data.substring(1, data.length() - 1) : data;
+            pass = INVALID_PASSWORD;
+        }
+        
+        boolean needsValid = expected.contains(Outcome.LOGGED_IN);
+        return new LoginScenario(testCase, resolve(user, validUser(), INVALID_USER, needsValid),
+                resolve(pass, validPassword(), INVALID_PASSWORD, needsValid), expected);
+    }
+    
+    // Outcomes that satisfy the Expected Result wording, or null when it is not about the login outcome
+    private static Set<Outcome> expectedOutcomes(String expectedResult) {
+        if (expectedResult.contains("successfully logged in")) {
+            return EnumSet.of(Outcome.LOGGED_IN);
+        }
+        if (expectedResult.contains("invalid credentials")) {
+            return EnumSet.of(Outcome.REJECTED);
+        }
+        if (expectedResult.contains("prevent login") || expectedResult.contains("disabled")) {
+            return EnumSet.of(Outcome.BLOCKED, Outcome.REJECTED);
+        }
+        if (expectedResult.matches(".*(securely|gracefully|properly|sanitize|validate|trim).*")) {
+            return EnumSet.of(Outcome.BLOCKED, Outcome.REJECTED, Outcome.NO_RESPONSE);
+        }
+        return null;
+    }
+    
+    private static String qualified(String part, String valid, String invalid) {
+        if (part.contains("empty")) {
+            return "";
+        }
+        return part.contains("invalid") ? invalid : valid;
+    }
+    
+    private static String explicitValue(String data, String key) {
+        for (String pair : data.split(";")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0 && pair.substring(0, equals).trim().equalsIgnoreCase(key)) {
+                return pair.substring(equals + 1);
+            }
+        }
+        return "";
+    }
+    
+    // Without configured credentials a case that must not log in still exercises the form with invalid ones
+    private static String resolve(String value, String valid, String invalid, boolean needsValid) {
+        if (!value.contains(VALID)) {
+            return value;
+        }
+        if (valid != null) {
+            return value.replace(VALID, valid);
+        }
+        return needsValid ? null : value.replace(VALID, invalid);
+    }
+    
+    public static String validUser() {
+        return System.getProperty("login.user", TargetEnvironment.isStandIn() ? StandInServer.DEFAULT_USER : null);
+    }
+    
+    public static String validPassword() {
+        return System.getProperty("login.password", TargetEnvironment.isStandIn() ? StandInServer.DEFAULT_PASSWORD : null);
+    }
+    
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+    
+    public TestCase getTestCase() {
+        return testCase;
+    }
+    
+    // null when the case needs valid credentials and none are configured
+    public String getUserId() {
+        return userId;
+    }
+    
+    public String getPassword() {
+        return password;
+    }
+    
+    public boolean hasCredentials() {
+        return userId != null && password != null;
+    }
+    
+    public Set<Outcome> getExpected() {
+        return expected;
+    }
+    
+    @Override
+    public String toString() {
+        return testCase.toString();
+    }
+}
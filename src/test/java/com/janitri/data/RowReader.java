@@ -0,0 +1,29 @@
+package com.janitri.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Streams the rows of a tabular file one at a time. Each row is a list of cell values indexed by
+ * column, with empty strings for blank cells; the file is never loaded as a whole.
+ */
+public interface RowReader extends Iterator<List<String>>, Closeable {
+    
+    // 1-based row number of the row last returned by next(), for error messages
+    int getRowNumber();
+    
+    static RowReader open(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".xlsx")) {
+            return XlsxRowReader.open(file);
+        }
+        if (name.endsWith(".csv")) {
+            return CsvRowReader.open(file);
+        }
+        throw new IllegalArgumentException("Test case file type not supported: " + file);
+    }
+}
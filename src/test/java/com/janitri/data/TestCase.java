@@ -0,0 +1,67 @@
+package com.janitri.data;
+
+/**
+ * One manual test case row: the columns of manual_test_cases.xlsx plus the section it appeared under
+ * and where it came from.
+ */
+public final class TestCase {
+    
+    private final String id;
+    private final String title;
+    private final String steps;
+    private final String expectedResult;
+    private final String testData;
+    private final String priority;
+    private final String section;
+    private final String source;
+    
+    TestCase(String id, String title, String steps, String expectedResult, String testData,
+             String priority, String section, String source) {
+        this.id = id;
+        this.title = title;
+        this.steps = steps;
+        this.expectedResult = expectedResult;
+        this.testData = testData;
+        this.priority = priority;
+        this.section = section;
+        this.source = source;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public String getTitle() {
+        return title;
+    }
+    
+    public String getSteps() {
+        return steps;
+    }
+    
+    public String getExpectedResult() {
+        return expectedResult;
+    }
+    
+    public String getTestData() {
+        return testData;
+    }
+    
+    public String getPriority() {
+        return priority;
+    }
+    
+    public String getSection() {
+        return section;
+    }
+    
+    // File and row, e.g. manual_test_cases.xlsx:3
+    public String getSource() {
+        return source;
+    }
+    
+    @Override
+    public String toString() {
+        return id + " " + title;
+    }
+}
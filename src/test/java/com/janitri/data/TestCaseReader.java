@@ -0,0 +1,122 @@
+package com.janitri.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Turns the rows of a test case sheet into {@link TestCase}s as they stream past.
+ *
+ * The sheet is laid out in sections: a single-cell title row ("Negative Test Cases"), a header row
+ * starting with "Test Case ID", then one row per case. Headers may repeat for every section and
+ * columns are matched by header name, so they can be reordered or moved. Rows outside a
+ * "Test Case ID" table, such as the execution summary, are ignored.
+ */
+public final class TestCaseReader implements Iterator<TestCase>, Closeable {
+    
+    private static final String ID = "test case id";
+    private static final String[][] COLUMNS = {
+            {ID},
+            {"title", "test case title"},
+            {"steps", "test steps"},
+            {"expected result", "expected"},
+            {"test data", "data"},
+            {"priority"}
+    };
+    
+    private final RowReader rows;
+    private final String fileName;
+    private Map<String, Integer> header;
+    private String section;
+    private TestCase nextCase;
+    
+    private TestCaseReader(RowReader rows, String fileName) {
+        this.rows = rows;
+        this.fileName = fileName;
+        this.nextCase = read();
+    }
+    
+    public static TestCaseReader open(Path file) throws IOException {
+        return new TestCaseReader(RowReader.open(file), file.getFileName().toString());
+    }
+    
+    @Override
+    public boolean hasNext() {
+        return nextCase != null;
+    }
+    
+    @Override
+    public TestCase next() {
+        if (nextCase == null) {
+            throw new NoSuchElementException();
+        }
+        TestCase testCase = nextCase;
+        nextCase = read();
+        return testCase;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        rows.close();
+    }
+    
+    private TestCase read() {
+        while (rows.hasNext()) {
+            List<String> row = rows.next();
+            int filled = 0;
+            String first = null;
+            for (String cell : row) {
+                if (!cell.isBlank()) {
+                    filled++;
+                    first = first == null ? cell.trim() : first;
+                }
+            }
+            if (filled == 0) {
+                continue;
+            }
+            
+            if (row.stream().anyMatch(cell -> ID.equals(normalize(cell)))) {
+                header = header(row);
+            } else if (filled == 1) {
+                // A section title closes the previous table
+                section = first;
+                header = null;
+            } else if (header != null && !cell(row, ID).isEmpty()) {
+                return new TestCase(cell(row, ID), cell(row, "title"), cell(row, "steps"),
+                        cell(row, "expected result"), cell(row, "test data"), cell(row, "priority"),
+                        section, fileName + ":" + rows.getRowNumber());
+            }
+        }
+        return null;
+    }
+    
+    private static Map<String, Integer> header(List<String> row) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < row.size(); i++) {
+            String name = normalize(row.get(i));
+            for (String[] aliases : COLUMNS) {
+                for (String alias : aliases) {
+                    if (alias.equals(name)) {
+                        columns.putIfAbsent(aliases[0], i);
+                    }
+                }
+            }
+        }
+        return columns;
+    }
+    
+    private String cell(List<String> row, String column) {
+        Integer index = header.get(column);
+        return index == null || index >= row.size() ? "" : row.get(index).trim();
+    }
+    
+    private static String normalize(String cell) {
+        return cell.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
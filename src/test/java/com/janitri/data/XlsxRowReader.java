@@ -0,0 +1,230 @@
+package com.janitri.data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streams the rows of the first worksheet of an .xlsx workbook with StAX, straight out of the zip.
+ *
+ * Only the shared string table is held in memory (cells refer to it by index); worksheet rows are
+ * parsed one at a time as they are requested, so large sheets cost no more than small ones.
+ * Formulas yield their cached value; styles, merged cells and other sheets are ignored.
+ */
+public final class XlsxRowReader implements RowReader {
+    
+    private static final String RELATIONSHIP_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final XMLInputFactory XML = XMLInputFactory.newFactory();
+    
+    private final ZipFile zip;
+    private final InputStream sheetStream;
+    private final XMLStreamReader sheet;
+    private final List<String> sharedStrings;
+    private List<String> nextRow;
+    private int nextRowNumber;
+    private int rowNumber;
+    
+    private XlsxRowReader(ZipFile zip, List<String> sharedStrings, InputStream sheetStream) throws XMLStreamException {
+        this.zip = zip;
+        this.sharedStrings = sharedStrings;
+        this.sheetStream = sheetStream;
+        this.sheet = XML.createXMLStreamReader(sheetStream);
+        this.nextRow = read();
+    }
+    
+    public static XlsxRowReader open(Path file) throws IOException {
+        ZipFile zip = new ZipFile(file.toFile());
+        try {
+            List<String> sharedStrings = sharedStrings(zip);
+            ZipEntry sheetEntry = zip.getEntry(firstSheet(zip));
+            if (sheetEntry == null) {
+                throw new IOException("No worksheet found in " + file);
+            }
+            return new XlsxRowReader(zip, sharedStrings, zip.getInputStream(sheetEntry));
+        } catch (IOException | XMLStreamException | RuntimeException e) {
+            zip.close();
+            throw e instanceof IOException ? (IOException) e : new IOException("Could not read " + file + ": " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public boolean hasNext() {
+        return nextRow != null;
+    }
+    
+    @Override
+    public List<String> next() {
+        if (nextRow == null) {
+            throw new NoSuchElementException();
+        }
+        List<String> row = nextRow;
+        rowNumber = nextRowNumber;
+        try {
+            nextRow = read();
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException("Could not read worksheet row after " + rowNumber, e);
+        }
+        return row;
+    }
+    
+    @Override
+    public int getRowNumber() {
+        return rowNumber;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            sheet.close();
+        } catch (XMLStreamException e) {
+            // Closing the streams below is what matters
+        }
+        sheetStream.close();
+        zip.close();
+    }
+    
+    // Advances to the next <row> and returns its cells, or null at the end of the sheet
+    private List<String> read() throws XMLStreamException {
+        List<String> row = null;
+        int column = -1;
+        String type = null;
+        StringBuilder value = null;
+        while (sheet.hasNext()) {
+            int event = sheet.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (sheet.getLocalName()) {
+                    case "row":
+                        row = new ArrayList<>();
+                        String number = sheet.getAttributeValue(null, "r");
+                        nextRowNumber = number != null ? Integer.parseInt(number) : nextRowNumber + 1;
+                        break;
+                    case "c":
+                        column = columnIndex(sheet.getAttributeValue(null, "r"), row == null ? 0 : row.size());
+                        type = sheet.getAttributeValue(null, "t");
+                        value = new StringBuilder();
+                        break;
+                    case "v":
+                    case "t":
+                        if (value != null) {
+                            value.append(sheet.getElementText());
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if ("c".equals(sheet.getLocalName()) && row != null) {
+                    while (row.size() < column) {
+                        row.add("");
+                    }
+                    row.add(cellValue(type, value.toString()));
+                    value = null;
+                } else if ("row".equals(sheet.getLocalName())) {
+                    return row;
+                }
+            }
+        }
+        return null;
+    }
+    
+    private String cellValue(String type, String raw) {
+        if ("s".equals(type) && !raw.isEmpty()) {
+            return sharedStrings.get(Integer.parseInt(raw.trim()));
+        }
+        if ("b".equals(type)) {
+            return "1".equals(raw) ? "TRUE" : "FALSE";
+        }
+        return raw;
+    }
+    
+    // "C12" -> 2; cells without a reference continue from the previous one
+    private static int columnIndex(String reference, int fallback) {
+        if (reference == null) {
+            return fallback;
+        }
+        int index = 0;
+        for (int i = 0; i < reference.length() && Character.isLetter(reference.charAt(i)); i++) {
+            index = index * 26 + (reference.charAt(i) - 'A' + 1);
+        }
+        return index - 1;
+    }
+    
+    private static List<String> sharedStrings(ZipFile zip) throws IOException, XMLStreamException {
+        ZipEntry entry = zip.getEntry("xl/sharedStrings.xml");
+        if (entry == null) {
+            return Collections.emptyList();
+        }
+        List<String> strings = new ArrayList<>();
+        try (InputStream in = zip.getInputStream(entry)) {
+            XMLStreamReader reader = XML.createXMLStreamReader(in);
+            StringBuilder current = null;
+            boolean phonetic = false;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if ("si".equals(name)) {
+                        current = new StringBuilder();
+                    } else if ("rPh".equals(name)) {
+                        phonetic = true;
+                    } else if ("t".equals(name) && current != null && !phonetic) {
+                        current.append(reader.getElementText());
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if ("si".equals(reader.getLocalName())) {
+                        strings.add(current.toString());
+                        current = null;
+                    } else if ("rPh".equals(reader.getLocalName())) {
+                        phonetic = false;
+                    }
+                }
+            }
+            reader.close();
+        }
+        return strings;
+    }
+    
+    // Follows the workbook's first <sheet> through its relationship to the worksheet part
+    private static String firstSheet(ZipFile zip) throws IOException, XMLStreamException {
+        String relationshipId = null;
+        ZipEntry workbook = zip.getEntry("xl/workbook.xml");
+        if (workbook != null) {
+            try (InputStream in = zip.getInputStream(workbook)) {
+                XMLStreamReader reader = XML.createXMLStreamReader(in);
+                while (reader.hasNext() && relationshipId == null) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && "sheet".equals(reader.getLocalName())) {
+                        relationshipId = reader.getAttributeValue(RELATIONSHIP_NS, "id");
+                    }
+                }
+                reader.close();
+            }
+        }
+        ZipEntry relationships = zip.getEntry("xl/_rels/workbook.xml.rels");
+        if (relationshipId != null && relationships != null) {
+            try (InputStream in = zip.getInputStream(relationships)) {
+                XMLStreamReader reader = XML.createXMLStreamReader(in);
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && "Relationship".equals(reader.getLocalName())
+                            && relationshipId.equals(reader.getAttributeValue(null, "Id"))) {
+                        String target = reader.getAttributeValue(null, "Target");
+                        reader.close();
+                        return target.startsWith("/") ? target.substring(1) : "xl/" + target;
+                    }
+                }
+                reader.close();
+            }
+        }
+        return "xl/worksheets/sheet1.xml";
+    }
+}
@@ -0,0 +1,57 @@
+package com.janitri.health;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.SkipException;
+
+import com.janitri.utils.TestLog;
+
+/**
+ * Suite-level circuit breaker for the application under test.
+ *
+ * It opens when the pre-flight probes find the target down, or when page loads fail
+ * {@code preflight.failure.threshold} times in a row (default 3). While open, tests that need the
+ * target are skipped immediately instead of burning their wait budgets against a dead environment.
+ */
+public final class CircuitBreaker {
+    
+    private static final int FAILURE_THRESHOLD = Integer.getInteger("preflight.failure.threshold", 3);
+    
+    private static final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private static volatile String openReason;
+    
+    private CircuitBreaker() {
+    }
+    
+    public static boolean isOpen() {
+        return openReason != null;
+    }
+    
+    public static String getOpenReason() {
+        return openReason;
+    }
+    
+    public static void open(String reason) {
+        if (openReason == null) {
+            openReason = reason;
+            TestLog.warn("⚠ Circuit breaker opened, dependent tests will be skipped: " + reason);
+        }
+    }
+    
+    public static void recordSuccess() {
+        consecutiveFailures.set(0);
+    }
+    
+    public static void recordFailure(String reason) {
+        if (consecutiveFailures.incrementAndGet() >= FAILURE_THRESHOLD) {
+            open(FAILURE_THRESHOLD + " consecutive page load failures, last: " + reason);
+        }
+    }
+    
+    public static void checkClosed() {
+        String reason = openReason;
+        if (reason != null) {
+            throw new SkipException("Target environment unavailable: " + reason);
+        }
+    }
+}
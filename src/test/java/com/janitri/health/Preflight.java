@@ -0,0 +1,141 @@
+package com.janitri.health;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Pre-flight health check of the login page and its critical assets.
+ *
+ * The login URL and any configured assets are probed concurrently with the JDK's async
+ * {@link HttpClient}; scripts and stylesheets referenced by the login page are then probed
+ * concurrently over the same client, reusing its pooled connections. The first result of a run is
+ * kept and feeds the {@link CircuitBreaker}.
+ *
+ * Configuration (system properties):
+ *   preflight.enabled          - false skips the probes (default true)
+ *   preflight.timeout.seconds  - per-request timeout (default 10)
+ *   preflight.assets           - extra comma-separated asset URLs, treated as critical
+ */
+public final class Preflight {
+    
+    private static final Duration TIMEOUT = Duration.ofSeconds(Long.getLong("preflight.timeout.seconds", 10));
+    private static final Pattern SCRIPT_SRC = Pattern.compile("<script[^>]+src=[\"']([^\"']+)[\"']", Pattern.CASE_INSENSITIVE);
+    private static final Pattern STYLESHEET_HREF = Pattern.compile(
+            "<link[^>]+rel=[\"']stylesheet[\"'][^>]*href=[\"']([^\"']+)[\"']", Pattern.CASE_INSENSITIVE);
+    
+    private static volatile List<ProbeResult> lastResults;
+    
+    private Preflight() {
+    }
+    
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty("preflight.enabled", "true"));
+    }
+    
+    // Results of the run for this JVM, probing on first call
+    public static synchronized List<ProbeResult> results(String loginUrl) {
+        if (lastResults == null) {
+            lastResults = run(loginUrl);
+            evaluate(lastResults);
+        }
+        return lastResults;
+    }
+    
+    public static List<ProbeResult> run(String loginUrl) {
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        
+        List<CompletableFuture<ProbeResult>> configured = new ArrayList<>();
+        for (String asset : System.getProperty("preflight.assets", "").split(",")) {
+            if (!asset.isBlank()) {
+                configured.add(probe(client, asset.trim(), true, null));
+            }
+        }
+        
+        StringBuilder html = new StringBuilder();
+        ProbeResult login = probe(client, loginUrl, true, html).join();
+        
+        List<CompletableFuture<ProbeResult>> assets = new ArrayList<>(configured);
+        if (login.isSuccess()) {
+            URI base = URI.create(loginUrl);
+            for (String asset : criticalAssets(html.toString())) {
+                String url = base.resolve(asset).toString();
+                // Third-party scripts may be blocked or slow without affecting the login flow
+                boolean sameOrigin = URI.create(url).getHost() != null && URI.create(url).getHost().equals(base.getHost());
+                assets.add(probe(client, url, sameOrigin, null));
+            }
+        }
+        
+        List<ProbeResult> results = new ArrayList<>();
+        results.add(login);
+        for (CompletableFuture<ProbeResult> asset : assets) {
+            results.add(asset.join());
+        }
+        return results;
+    }
+    
+    private static void evaluate(List<ProbeResult> results) {
+        for (ProbeResult result : results) {
+            if (result.isCritical() && !result.isSuccess()) {
+                CircuitBreaker.open("pre-flight probe failed for " + result.getUrl()
+                        + (result.getError() != null ? ": " + result.getError() : " (HTTP " + result.getStatus() + ")"));
+                return;
+            }
+        }
+    }
+    
+    private static Set<String> criticalAssets(String html) {
+        Set<String> assets = new LinkedHashSet<>();
+        for (Pattern pattern : new Pattern[] {SCRIPT_SRC, STYLESHEET_HREF}) {
+            Matcher matcher = pattern.matcher(html);
+            while (matcher.find()) {
+                assets.add(matcher.group(1));
+            }
+        }
+        return assets;
+    }
+    
+    private static CompletableFuture<ProbeResult> probe(HttpClient client, String url, boolean critical, StringBuilder bodySink) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(url)).timeout(TIMEOUT).GET().build();
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(new ProbeResult(url, critical, -1, 0, 0, 0, e.getMessage()));
+        }
+        
+        long start = System.nanoTime();
+        long[] headersAt = new long[1];
+        // The body handler is invoked as soon as the status line and headers arrive
+        HttpResponse.BodyHandler<byte[]> handler = responseInfo -> {
+            headersAt[0] = System.nanoTime();
+            return HttpResponse.BodySubscribers.ofByteArray();
+        };
+        
+        return client.sendAsync(request, handler).handle((response, error) -> {
+            long total = (System.nanoTime() - start) / 1_000_000;
+            long ttfb = headersAt[0] == 0 ? total : (headersAt[0] - start) / 1_000_000;
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                String message = cause.getClass().getSimpleName() + (cause.getMessage() != null ? " " + cause.getMessage() : "");
+                return new ProbeResult(url, critical, -1, ttfb, total, 0, message);
+            }
+            if (bodySink != null) {
+                bodySink.append(new String(response.body(), StandardCharsets.UTF_8));
+            }
+            return new ProbeResult(url, critical, response.statusCode(), ttfb, total, response.body().length, null);
+        });
+    }
+}
@@ -0,0 +1,67 @@
+package com.janitri.health;
+
+/**
+ * Outcome of a single pre-flight HTTP probe.
+ */
+public class ProbeResult {
+    
+    private final String url;
+    private final boolean critical;
+    private final int status;
+    private final long ttfbMillis;
+    private final long totalMillis;
+    private final long bytes;
+    private final String error;
+    
+    ProbeResult(String url, boolean critical, int status, long ttfbMillis, long totalMillis, long bytes, String error) {
+        this.url = url;
+        this.critical = critical;
+        this.status = status;
+        this.ttfbMillis = ttfbMillis;
+        this.totalMillis = totalMillis;
+        this.bytes = bytes;
+        this.error = error;
+    }
+    
+    public String getUrl() {
+        return url;
+    }
+    
+    public boolean isCritical() {
+        return critical;
+    }
+    
+    // HTTP status, or -1 if no response was received
+    public int getStatus() {
+        return status;
+    }
+    
+    // Time until the response headers arrived
+    public long getTtfbMillis() {
+        return ttfbMillis;
+    }
+    
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+    
+    public long getBytes() {
+        return bytes;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public boolean isSuccess() {
+        return error == null && status >= 200 && status < 400;
+    }
+    
+    @Override
+    public String toString() {
+        String outcome = error != null ? "error: " + error : "HTTP " + status;
+        return String.format("%s %-9s %s (ttfb %d ms, total %d ms, %d bytes)",
+                isSuccess() ? "✓" : "⚠", critical ? "critical" : "optional", url + " -> " + outcome,
+                ttfbMillis, totalMillis, bytes);
+    }
+}
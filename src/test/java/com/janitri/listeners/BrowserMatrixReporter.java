@@ -0,0 +1,94 @@
+package com.janitri.listeners;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openqa.selenium.json.Json;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ISuiteResult;
+import org.testng.ITestContext;
+import org.testng.ITestResult;
+
+import com.janitri.utils.TestLog;
+
+/**
+ * Summarises a browser-matrix run per browser: passed, failed and skipped tests, set-up failures,
+ * the time from the browser's first test starting to its last finishing, and which tests failed.
+ * Written to the console and to {@code browser-matrix.json} in the perf directory. Runs with a single
+ * browser are left alone.
+ */
+public class BrowserMatrixReporter implements ISuiteListener {
+    
+    private static final class BrowserResults {
+        
+        int passed;
+        int failed;
+        int skipped;
+        int setUpFailures;
+        long startMillis = Long.MAX_VALUE;
+        long endMillis;
+        final List<String> failures = new ArrayList<>();
+    }
+    
+    @Override
+    public void onFinish(ISuite suite) {
+        Map<String, BrowserResults> byBrowser = new LinkedHashMap<>();
+        for (ISuiteResult suiteResult : suite.getResults().values()) {
+            ITestContext context = suiteResult.getTestContext();
+            String browser = context.getCurrentXmlTest().getParameter("browser");
+            BrowserResults results = byBrowser.computeIfAbsent(browser == null ? "?" : browser.trim(), key -> new BrowserResults());
+            results.passed += context.getPassedTests().size();
+            results.failed += context.getFailedTests().size() + context.getFailedButWithinSuccessPercentageTests().size();
+            results.skipped += context.getSkippedTests().size();
+            // A browser that cannot start fails in set-up and shows up only as skipped tests otherwise
+            results.setUpFailures += context.getFailedConfigurations().size();
+            results.startMillis = Math.min(results.startMillis, context.getStartDate().getTime());
+            results.endMillis = Math.max(results.endMillis, context.getEndDate().getTime());
+            for (ITestResult failure : context.getFailedTests().getAllResults()) {
+                results.failures.add(failure.getTestClass().getRealClass().getSimpleName() + "." + failure.getMethod().getMethodName());
+            }
+        }
+        if (byBrowser.size() < 2) {
+            return;
+        }
+        
+        StringBuilder report = new StringBuilder("=== Browser Matrix ===").append(System.lineSeparator())
+                .append(String.format("%-10s %7s %7s %8s %14s %10s", "browser", "passed", "failed", "skipped", "setup failed", "wall ms"));
+        Map<String, Object> json = new LinkedHashMap<>();
+        byBrowser.forEach((browser, results) -> {
+            long wallMillis = Math.max(0, results.endMillis - results.startMillis);
+            report.append(System.lineSeparator())
+                    .append(String.format("%-10s %7d %7d %8d %14d %10d", browser, results.passed, results.failed, results.skipped,
+                            results.setUpFailures, wallMillis));
+            if (!results.failures.isEmpty()) {
+                report.append(System.lineSeparator()).append("           failed: ").append(String.join(", ", results.failures));
+            }
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("passed", results.passed);
+            entry.put("failed", results.failed);
+            entry.put("skipped", results.skipped);
+            entry.put("setUpFailures", results.setUpFailures);
+            entry.put("wallMillis", wallMillis);
+            entry.put("failures", results.failures);
+            json.put(browser, entry);
+        });
+        TestLog.info(report.toString());
+        
+        Path file = Paths.get(System.getProperty("perf.dir", "target/perf")).resolve("browser-matrix.json");
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(file, new Json().toJson(json).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            TestLog.warn("Could not write " + file + ": " + e.getMessage());
+        }
+        TestLog.flush();
+    }
+}
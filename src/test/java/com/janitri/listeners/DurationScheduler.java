@@ -0,0 +1,146 @@
+package com.janitri.listeners;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.testng.IAnnotationTransformer;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.annotations.ITestAnnotation;
+
+import com.janitri.base.RunFirst;
+import com.janitri.utils.DurationHistory;
+import com.janitri.utils.TestLog;
+
+/**
+ * Orders test methods longest-first from their recorded durations, so under parallel execution the
+ * slow tests start early and the short ones fill in at the end instead of a slow test running alone
+ * at the tail. TestNG hands methods to free worker threads in priority order, so giving each method
+ * a priority from its duration is longest-processing-time-first scheduling.
+ *
+ * Durations come from {@link DurationHistory}, seeded from target/surefire-reports/testng-results.xml
+ * when it is empty; methods never observed are estimated at the average. Each method's time,
+ * including its set-up and tear-down, is recorded back at the end of the suite.
+ *
+ * Methods or classes marked {@link RunFirst} run before all scheduled methods, and dependsOnMethods
+ * still holds, since TestNG resolves dependencies before priorities.
+ *
+ *   schedule.by.duration    - false keeps the priorities written in the test classes
+ *   duration.history.record - false leaves the history untouched (ShardLauncher records its shards itself)
+ */
+public class DurationScheduler implements IAnnotationTransformer, IMethodInterceptor, IInvokedMethodListener, ISuiteListener {
+    
+    private static final boolean SCHEDULE = Boolean.parseBoolean(System.getProperty("schedule.by.duration", "true"));
+    private static final boolean RECORD = Boolean.parseBoolean(System.getProperty("duration.history.record", "true"));
+    private static final long UNKNOWN_DEFAULT_MILLIS = 10_000;
+    
+    private static volatile DurationHistory history;
+    
+    private final Map<String, Long> observed = new ConcurrentHashMap<>();
+    // Set-up time waits for the test it belongs to; tear-down time goes to the test just run on the thread
+    private final ThreadLocal<Long> pendingSetUp = ThreadLocal.withInitial(() -> 0L);
+    private final ThreadLocal<String> lastTest = new ThreadLocal<>();
+    
+    private static DurationHistory history() {
+        if (history == null) {
+            synchronized (DurationScheduler.class) {
+                if (history == null) {
+                    DurationHistory loaded = DurationHistory.load();
+                    if (loaded.isEmpty()) {
+                        loaded.importResults(Paths.get("target", "surefire-reports", "testng-results.xml"));
+                    }
+                    history = loaded;
+                }
+            }
+        }
+        return history;
+    }
+    
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void transform(ITestAnnotation annotation, Class testClass, Constructor testConstructor, Method testMethod) {
+        if (!SCHEDULE || testMethod == null) {
+            return;
+        }
+        if (testMethod.isAnnotationPresent(RunFirst.class) || testMethod.getDeclaringClass().isAnnotationPresent(RunFirst.class)) {
+            // Keeps their own relative order ahead of every scheduled method
+            annotation.setPriority(Integer.MIN_VALUE + annotation.getPriority());
+            return;
+        }
+        DurationHistory durations = history();
+        long millis = durations.get(DurationHistory.key(testMethod.getDeclaringClass().getName(), testMethod.getName()));
+        if (millis < 0) {
+            millis = durations.average(UNKNOWN_DEFAULT_MILLIS);
+        }
+        // Lower priorities run first, so the longest test gets the lowest
+        annotation.setPriority((int) -Math.min(millis, Integer.MAX_VALUE / 2));
+    }
+    
+    // preserve-order and method interceptors hand methods over in suite file order; put them in priority order again
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        if (!SCHEDULE) {
+            return methods;
+        }
+        List<IMethodInstance> ordered = new ArrayList<>(methods);
+        ordered.sort(Comparator.comparingInt(instance -> instance.getMethod().getPriority()));
+        return ordered;
+    }
+    
+    @Override
+    public void onStart(ISuite suite) {
+        if (SCHEDULE) {
+            DurationHistory durations = history();
+            TestLog.info("Scheduling test methods longest-first from " + (durations.isEmpty()
+                    ? "default estimates (no duration history yet)" : durations.getFile()));
+        }
+    }
+    
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult result) {
+        if (!RECORD) {
+            return;
+        }
+        ITestNGMethod testNGMethod = method.getTestMethod();
+        long millis = result.getEndMillis() - result.getStartMillis();
+        if (method.isTestMethod()) {
+            if (result.getStatus() == ITestResult.SKIP) {
+                // A skipped test says nothing about how long it takes
+                lastTest.remove();
+            } else {
+                String key = DurationHistory.key(testNGMethod.getRealClass().getName(), testNGMethod.getMethodName());
+                observed.merge(key, millis + pendingSetUp.get(), Long::sum);
+                lastTest.set(key);
+            }
+            pendingSetUp.remove();
+        } else if (testNGMethod.isBeforeMethodConfiguration()) {
+            pendingSetUp.set(pendingSetUp.get() + millis);
+        } else if (testNGMethod.isAfterMethodConfiguration() && lastTest.get() != null) {
+            observed.merge(lastTest.get(), millis, Long::sum);
+        }
+    }
+    
+    @Override
+    public void onFinish(ISuite suite) {
+        if (!RECORD || observed.isEmpty()) {
+            return;
+        }
+        DurationHistory durations = history();
+        observed.forEach(durations::record);
+        durations.save();
+        TestLog.info("Recorded durations of " + observed.size() + " test methods in " + durations.getFile());
+    }
+}
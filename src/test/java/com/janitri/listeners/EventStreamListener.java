@@ -0,0 +1,209 @@
+package com.janitri.listeners;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.testng.IConfigurationListener;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+
+import com.janitri.metrics.CommandMetrics;
+import com.janitri.utils.EventStream;
+import com.janitri.utils.TestLog;
+import com.janitri.waits.WaitBudget;
+
+/**
+ * Streams the progress of the run to the {@link EventStream} as it happens: suite and {@code <test>}
+ * start and finish, each test method's start and result (with its wait time, WebDriver commands and
+ * failure message), and the time of every set-up and tear-down step. Waits and failure artifacts are
+ * reported by {@code SmartWait} and {@link FailureCaptureListener}.
+ *
+ * Register it after the other method interceptors: the number of methods it reports as scheduled for
+ * each {@code <test>} is what is left after them, which lets {@code EventTail} compute an ETA.
+ * Planned and scheduled counts are invocations known up front; data-driven methods are counted
+ * apart, since their rows are only known once the data provider has run.
+ */
+public class EventStreamListener implements ISuiteListener, ITestListener, IConfigurationListener, IMethodInterceptor {
+    
+    private final AtomicInteger passed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private volatile long suiteStartMillis;
+    
+    @Override
+    public void onStart(ISuite suite) {
+        if (!EventStream.ENABLED) {
+            return;
+        }
+        suiteStartMillis = System.currentTimeMillis();
+        EventStream.emit("suite-start", EventStream.fields(
+                "suite", suite.getName(),
+                "planned", invocations(suite.getAllMethods()),
+                "dataDriven", dataDriven(suite.getAllMethods()),
+                "parallel", String.valueOf(suite.getXmlSuite().getParallel()),
+                "threads", suite.getXmlSuite().getThreadCount(),
+                "browser", suite.getParameter("browser")));
+    }
+    
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        List<ITestNGMethod> scheduled = methods.stream().map(IMethodInstance::getMethod).collect(Collectors.toList());
+        EventStream.emit("scheduled", EventStream.fields(
+                "context", context.getName(),
+                "planned", invocations(Arrays.asList(context.getAllTestMethods())),
+                "scheduled", invocations(scheduled),
+                "dataDriven", dataDriven(scheduled)));
+        return methods;
+    }
+    
+    // Invocations known before the run; a data-driven method runs once per row instead
+    private static int invocations(Collection<ITestNGMethod> methods) {
+        return methods.stream().filter(method -> !method.isDataDriven()).mapToInt(method -> Math.max(1, method.getInvocationCount())).sum();
+    }
+    
+    private static long dataDriven(Collection<ITestNGMethod> methods) {
+        return methods.stream().filter(ITestNGMethod::isDataDriven).count();
+    }
+    
+    @Override
+    public void onStart(ITestContext context) {
+        EventStream.emit("context-start", EventStream.fields(
+                "context", context.getName(),
+                "browser", context.getCurrentXmlTest().getParameter("browser")));
+    }
+    
+    @Override
+    public void onTestStart(ITestResult result) {
+        EventStream.emit("test-start", EventStream.fields(
+                "test", name(result),
+                "context", result.getTestContext().getName(),
+                "thread", Thread.currentThread().getName()));
+    }
+    
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        passed.incrementAndGet();
+        finished(result, "PASS");
+    }
+    
+    @Override
+    public void onTestFailure(ITestResult result) {
+        failed.incrementAndGet();
+        finished(result, "FAIL");
+    }
+    
+    @Override
+    public void onTestFailedButWithinSuccessPercentage(ITestResult result) {
+        failed.incrementAndGet();
+        finished(result, "FAIL");
+    }
+    
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        skipped.incrementAndGet();
+        finished(result, "SKIP");
+    }
+    
+    // Runs on the test's own thread, before tear-down, so its wait budget and command count are still current
+    private static void finished(ITestResult result, String status) {
+        if (!EventStream.ENABLED) {
+            return;
+        }
+        Map<String, Object> fields = EventStream.fields(
+                "test", name(result),
+                "context", result.getTestContext().getName(),
+                "status", status,
+                "ms", result.getEndMillis() - result.getStartMillis());
+        if (result.getMethod().isDataDriven()) {
+            fields.put("dataDriven", true);
+        }
+        WaitBudget budget = WaitBudget.current();
+        if (budget != null) {
+            fields.put("waitMs", budget.getWaitedMillis());
+            fields.put("waits", budget.getWaitCount());
+        }
+        fields.put("commands", CommandMetrics.currentCommandCount());
+        if (result.getThrowable() != null) {
+            fields.put("error", firstLine(result.getThrowable()));
+        }
+        EventStream.emit("test-finish", fields);
+    }
+    
+    @Override
+    public void onConfigurationSuccess(ITestResult result) {
+        step(result, "PASS");
+    }
+    
+    @Override
+    public void onConfigurationFailure(ITestResult result) {
+        step(result, "FAIL");
+    }
+    
+    @Override
+    public void onConfigurationSkip(ITestResult result) {
+        step(result, "SKIP");
+    }
+    
+    private static void step(ITestResult result, String status) {
+        if (!EventStream.ENABLED) {
+            return;
+        }
+        Map<String, Object> fields = EventStream.fields(
+                "step", result.getMethod().getMethodName(),
+                "class", result.getTestClass().getRealClass().getSimpleName(),
+                "status", status,
+                "ms", Math.max(0, result.getEndMillis() - result.getStartMillis()));
+        if (result.getThrowable() != null) {
+            fields.put("error", firstLine(result.getThrowable()));
+        }
+        EventStream.emit("step", fields);
+    }
+    
+    @Override
+    public void onFinish(ITestContext context) {
+        EventStream.emit("context-finish", EventStream.fields(
+                "context", context.getName(),
+                "passed", context.getPassedTests().size(),
+                "failed", context.getFailedTests().size(),
+                "skipped", context.getSkippedTests().size()));
+    }
+    
+    @Override
+    public void onFinish(ISuite suite) {
+        if (!EventStream.ENABLED) {
+            return;
+        }
+        EventStream.emit("suite-finish", EventStream.fields(
+                "suite", suite.getName(),
+                "passed", passed.get(),
+                "failed", failed.get(),
+                "skipped", skipped.get(),
+                "ms", System.currentTimeMillis() - suiteStartMillis));
+        EventStream.flush(2, TimeUnit.SECONDS);
+        TestLog.info(EventStream.describe());
+    }
+    
+    // e.g. LoginPageTest.testPageElementsPresence; data-driven rows get a hash of their parameters, which may hold passwords
+    private static String name(ITestResult result) {
+        String name = result.getTestClass().getRealClass().getSimpleName() + "." + result.getMethod().getMethodName();
+        return result.getParameters().length > 0
+                ? name + "[" + Integer.toHexString(Arrays.deepToString(result.getParameters()).hashCode()) + "]" : name;
+    }
+    
+    private static String firstLine(Throwable throwable) {
+        String message = String.valueOf(throwable.getMessage());
+        int newline = message.indexOf('\n');
+        return throwable.getClass().getSimpleName() + ": " + (newline >= 0 ? message.substring(0, newline) : message);
+    }
+}
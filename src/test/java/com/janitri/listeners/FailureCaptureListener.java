@@ -0,0 +1,134 @@
+package com.janitri.listeners;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.logging.LogEntry;
+import org.openqa.selenium.logging.LogType;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestResult;
+
+import com.janitri.base.BaseTest;
+import com.janitri.utils.ArtifactWriter;
+import com.janitri.utils.EventStream;
+import com.janitri.utils.TestLog;
+
+/**
+ * Captures the browser state when a test method fails: a screenshot, the page source, the browser
+ * console log and the failure itself. The raw bytes are taken on the test thread, before
+ * {@code tearDown} returns the session to the pool, and handed to an {@link ArtifactWriter} that
+ * zips them into the artifacts directory in the background.
+ *
+ * Under pressure (the write queue more than half full) the screenshot is skipped; when the queue is
+ * full the capture is dropped. Queued captures are flushed when the suite finishes.
+ *
+ *   artifacts.enabled        - false turns capture off
+ *   artifacts.dir            - output directory (default target/failure-artifacts)
+ *   artifacts.queue.size     - captures waiting to be written before new ones are dropped (default 16)
+ *   artifacts.flush.seconds  - how long the end of the suite waits for pending writes (default 10)
+ */
+public class FailureCaptureListener implements IInvokedMethodListener, ISuiteListener {
+    
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("artifacts.enabled", "true"));
+    private static final ArtifactWriter WRITER = new ArtifactWriter(
+            Paths.get(System.getProperty("artifacts.dir", "target/failure-artifacts")),
+            Integer.getInteger("artifacts.queue.size", 16));
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").withZone(ZoneId.systemDefault());
+    
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult result) {
+        if (!ENABLED || !method.isTestMethod() || result.getStatus() != ITestResult.FAILURE) {
+            return;
+        }
+        WebDriver driver = BaseTest.getDriver();
+        long start = System.nanoTime();
+        ArtifactWriter.Capture capture = new ArtifactWriter.Capture(testId(result));
+        capture.add("failure.txt", describe(result, driver));
+        if (driver != null) {
+            if (WRITER.isUnderPressure()) {
+                TestLog.warn("Failure artifact queue is backing up; skipping the screenshot for " + capture.getName());
+            } else {
+                capture.add("screenshot.png", quietly(() -> ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES)));
+            }
+            capture.add("page-source.html", quietly(() -> driver.getPageSource().getBytes(StandardCharsets.UTF_8)));
+            capture.add("browser-console.log", quietly(() -> consoleLog(driver)));
+        }
+        if (WRITER.submit(capture)) {
+            EventStream.emit("artifact", EventStream.fields(
+                    "test", result.getTestClass().getRealClass().getSimpleName() + "." + result.getMethod().getMethodName(),
+                    "path", WRITER.fileFor(capture).toString()));
+        } else {
+            TestLog.warn("Failure artifact queue is full; dropped the capture for " + capture.getName());
+        }
+        TestLog.debug(() -> "Captured failure artifacts in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+    
+    @Override
+    public void onFinish(ISuite suite) {
+        if (!WRITER.flush(Long.getLong("artifacts.flush.seconds", 10), TimeUnit.SECONDS)) {
+            TestLog.warn("Some failure artifacts were still being written when the suite finished");
+        }
+        TestLog.info(WRITER.describe());
+    }
+    
+    // e.g. LoginPageTest.testPageElementsPresence-20261017-223026-123, plus a parameter hash for data-driven rows
+    private static String testId(ITestResult result) {
+        String id = result.getTestClass().getRealClass().getSimpleName() + "." + result.getMethod().getMethodName();
+        if (result.getParameters().length > 0) {
+            id += "-" + Integer.toHexString(Arrays.deepToString(result.getParameters()).hashCode());
+        }
+        id += "-" + TIMESTAMP.format(Instant.ofEpochMilli(result.getEndMillis()));
+        return id.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+    
+    private static byte[] describe(ITestResult result, WebDriver driver) {
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+        out.println("Test: " + result.getTestClass().getName() + "." + result.getMethod().getMethodName());
+        if (result.getParameters().length > 0) {
+            out.println("Parameters: " + Arrays.deepToString(result.getParameters()));
+        }
+        out.println("Duration: " + (result.getEndMillis() - result.getStartMillis()) + " ms");
+        if (driver != null) {
+            out.println("URL: " + quietly(driver::getCurrentUrl));
+        }
+        if (result.getThrowable() != null) {
+            out.println();
+            result.getThrowable().printStackTrace(out);
+        }
+        out.flush();
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    private static byte[] consoleLog(WebDriver driver) {
+        StringBuilder log = new StringBuilder();
+        for (LogEntry entry : driver.manage().logs().get(LogType.BROWSER)) {
+            log.append(entry.toString()).append(System.lineSeparator());
+        }
+        return log.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    // A broken session must not turn a test failure into a listener failure; missing parts are left out
+    private static <T> T quietly(Supplier<T> capturing) {
+        try {
+            return capturing.get();
+        } catch (RuntimeException e) {
+            TestLog.debug(() -> "Could not capture a failure artifact: " + e.getMessage());
+            return null;
+        }
+    }
+}
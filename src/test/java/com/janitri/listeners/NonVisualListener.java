@@ -0,0 +1,48 @@
+package com.janitri.listeners;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ITestContext;
+
+import com.janitri.base.DriverFactory;
+import com.janitri.base.NonVisual;
+import com.janitri.utils.TestLog;
+
+/**
+ * Keeps visual checks off in-process browsers.
+ *
+ * When a test's {@code browser} is htmlunit, only test methods marked {@link NonVisual} (or in a
+ * class marked with it) are run; the rest are left out of the run and listed in the log. Other
+ * browsers run every method.
+ */
+public class NonVisualListener implements IMethodInterceptor {
+    
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        // The <test>'s own browser, which differs per copy in a browser matrix
+        String browser = context.getCurrentXmlTest().getParameter("browser");
+        if (browser == null || !DriverFactory.isInProcess(browser.trim().toLowerCase())) {
+            return methods;
+        }
+        
+        List<IMethodInstance> kept = new ArrayList<>();
+        List<String> left = new ArrayList<>();
+        for (IMethodInstance instance : methods) {
+            Method method = instance.getMethod().getConstructorOrMethod().getMethod();
+            if (method.isAnnotationPresent(NonVisual.class) || method.getDeclaringClass().isAnnotationPresent(NonVisual.class)) {
+                kept.add(instance);
+            } else {
+                left.add(method.getDeclaringClass().getSimpleName() + "." + method.getName());
+            }
+        }
+        if (!left.isEmpty()) {
+            TestLog.info("Not running " + left.size() + " visual test(s) in '" + context.getName() + "' on "
+                    + browser.trim() + ": " + String.join(", ", left));
+        }
+        return kept;
+    }
+}
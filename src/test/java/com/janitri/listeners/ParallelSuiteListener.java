@@ -0,0 +1,157 @@
+package com.janitri.listeners;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.IAlterSuiteListener;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import com.janitri.base.BrowserCapacity;
+import com.janitri.utils.TestLog;
+
+/**
+ * Switches the suite into parallel mode before TestNG builds it.
+ *
+ * The mode and thread count come from system properties, falling back to suite parameters:
+ *   test.parallel / parallel-mode  - none (default), methods, classes or tests
+ *   test.threads  / thread-count   - worker threads (default: available cores)
+ *   dataprovider.threads / data-provider-thread-count - rows of a parallel data provider run at once
+ *
+ * -Dbrowser also replaces the suite's {@code browser} parameter (chrome, firefox or htmlunit).
+ *
+ * A comma-separated {@code browser}, e.g. chrome,firefox,htmlunit, is a matrix: every {@code <test>}
+ * is repeated once per browser, named "LoginPageTests [firefox]" and with its own {@code browser}
+ * parameter. Each browser's pool is sized from its share of the machine ({@link BrowserCapacity}).
+ * Unless a parallel mode is set, the copies run in parallel by test, with as many threads as the
+ * browsers have sessions between them.
+ *
+ * Running by test starts every {@code <test>} at once, so the connectivity {@code <test>} no longer
+ * runs ahead of the others ({@code @RunFirst} only orders methods within a {@code <test>}); the
+ * pre-flight probes in {@link PreflightListener} still run before any test.
+ *
+ * e.g. mvn test -Dtest.parallel=methods -Dtest.threads=5
+ *      mvn test -Dbrowser=chrome,firefox
+ */
+public class ParallelSuiteListener implements IAlterSuiteListener {
+    
+    @Override
+    public void alter(List<XmlSuite> suites) {
+        for (XmlSuite suite : suites) {
+            String browser = System.getProperty("browser");
+            if (browser != null && !browser.isBlank()) {
+                suite.getParameters().put("browser", browser.trim());
+            }
+            
+            String dataProviderThreads = setting(suite, "dataprovider.threads", "data-provider-thread-count", "");
+            if (!dataProviderThreads.isEmpty()) {
+                suite.setDataProviderThreadCount(Integer.parseInt(dataProviderThreads));
+            }
+            
+            String mode = setting(suite, "test.parallel", "parallel-mode", "none").toLowerCase();
+            XmlSuite.ParallelMode parallelMode = XmlSuite.ParallelMode.getValidParallel(mode);
+            int threads = Integer.parseInt(setting(suite, "test.threads", "thread-count",
+                    String.valueOf(Runtime.getRuntime().availableProcessors())));
+            
+            List<String> matrix = browsers(suite.getParameter("browser"));
+            if (matrix.size() > 1) {
+                // TestNG resolves @Parameters from system properties first, which would hide each copy's own browser
+                System.clearProperty("browser");
+                int sessions = expandMatrix(suite, matrix);
+                if (parallelMode == XmlSuite.ParallelMode.NONE) {
+                    // The suite's thread-count is meant for one browser; the matrix runs as many tests as it has sessions
+                    mode = "tests";
+                    parallelMode = XmlSuite.ParallelMode.TESTS;
+                    threads = Integer.getInteger("test.threads", sessions);
+                }
+            }
+            if (parallelMode == XmlSuite.ParallelMode.NONE) {
+                continue;
+            }
+            
+            suite.setParallel(parallelMode);
+            suite.setThreadCount(threads);
+            
+            // One pooled browser per worker unless the pool was sized explicitly
+            if (System.getProperty("pool.size") == null) {
+                System.setProperty("pool.size", String.valueOf(threads));
+            }
+            TestLog.setBuffered(true);
+            TestLog.info("Running suite '" + suite.getName() + "' in parallel by " + mode
+                    + " with " + threads + " threads");
+        }
+    }
+    
+    // Browsers named by a browser parameter, e.g. "chrome, firefox" -> [chrome, firefox]
+    public static List<String> browsers(String parameter) {
+        List<String> browsers = new ArrayList<>();
+        if (parameter != null) {
+            for (String browser : parameter.split(",")) {
+                String name = browser.trim().toLowerCase();
+                if (!name.isEmpty() && !browsers.contains(name)) {
+                    browsers.add(name);
+                }
+            }
+        }
+        return browsers;
+    }
+    
+    /**
+     * Replaces every {@code <test>} with one copy per browser, interleaved so each browser starts on
+     * the first test right away, and sizes each browser's pool. Returns the sessions of all browsers
+     * together.
+     */
+    private static int expandMatrix(XmlSuite suite, List<String> browsers) {
+        List<XmlTest> expanded = new ArrayList<>();
+        for (XmlTest test : new ArrayList<>(suite.getTests())) {
+            for (String browser : browsers) {
+                expanded.add(copyFor(suite, test, browser));
+            }
+        }
+        suite.setTests(expanded);
+        
+        int sessions = 0;
+        for (String browser : browsers) {
+            int limit = BrowserCapacity.limitFor(browser, browsers.size());
+            System.setProperty("pool.size." + browser, String.valueOf(limit));
+            sessions += limit;
+            TestLog.info("Browser matrix " + BrowserCapacity.describe(browser, browsers.size()));
+        }
+        return sessions;
+    }
+    
+    // XmlTest.clone() shares its class list with the original, so the copy is built field by field
+    private static XmlTest copyFor(XmlSuite suite, XmlTest test, String browser) {
+        XmlTest copy = new XmlTest(suite);
+        copy.setName(test.getName() + " [" + browser + "]");
+        copy.setPreserveOrder(test.getPreserveOrder());
+        copy.setParallel(test.getParallel());
+        copy.setThreadCount(test.getThreadCount());
+        copy.setVerbose(test.getVerbose());
+        copy.setIncludedGroups(new ArrayList<>(test.getIncludedGroups()));
+        copy.setExcludedGroups(new ArrayList<>(test.getExcludedGroups()));
+        copy.setXmlPackages(new ArrayList<>(test.getXmlPackages()));
+        List<XmlClass> classes = new ArrayList<>();
+        for (XmlClass xmlClass : test.getXmlClasses()) {
+            XmlClass classCopy = (XmlClass) xmlClass.clone();
+            classCopy.setXmlTest(copy);
+            classes.add(classCopy);
+        }
+        copy.setXmlClasses(classes);
+        Map<String, String> parameters = new LinkedHashMap<>(test.getLocalParameters());
+        parameters.put("browser", browser);
+        copy.setParameters(parameters);
+        return copy;
+    }
+    
+    private static String setting(XmlSuite suite, String property, String parameter, String defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null || value.isBlank()) {
+            value = suite.getParameter(parameter);
+        }
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+}
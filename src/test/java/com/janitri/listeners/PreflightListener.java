@@ -0,0 +1,27 @@
+package com.janitri.listeners;
+
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+
+import com.janitri.base.TargetEnvironment;
+import com.janitri.health.Preflight;
+import com.janitri.health.ProbeResult;
+import com.janitri.utils.TestLog;
+
+/**
+ * Runs the pre-flight probes once, before any test of the suite starts, so the circuit breaker is
+ * already set when the first browser would be launched.
+ */
+public class PreflightListener implements ISuiteListener {
+    
+    @Override
+    public void onStart(ISuite suite) {
+        if (!Preflight.isEnabled()) {
+            return;
+        }
+        TestLog.info("=== Pre-flight Health Check ===");
+        for (ProbeResult result : Preflight.results(TargetEnvironment.baseUrl())) {
+            TestLog.info(result.toString());
+        }
+    }
+}
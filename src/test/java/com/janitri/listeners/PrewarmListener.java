@@ -0,0 +1,57 @@
+package com.janitri.listeners;
+
+import java.util.List;
+
+import org.testng.IAlterSuiteListener;
+import org.testng.xml.XmlSuite;
+
+import com.janitri.base.BrowserProfile;
+import com.janitri.base.BrowserWatchdog;
+import com.janitri.base.DriverBinaries;
+import com.janitri.base.DriverPool;
+import com.janitri.utils.TestLog;
+
+/**
+ * Gets the suite's browser ready in the background while TestNG is still building the suite.
+ *
+ * The driver binary is always resolved up front. With -Dprewarm=N, N browser sessions (capped at the
+ * pool size) are also started for the suite's {@code browser} and {@code profile} and parked in the
+ * {@link DriverPool}, so the first tests do not pay the cold-start latency. In a browser matrix this
+ * is done for every browser.
+ *
+ * Orphaned driver and browser processes from earlier runs are reaped first (see {@link BrowserWatchdog}).
+ *
+ * Must be registered after {@link ParallelSuiteListener}, which sizes the pool.
+ */
+public class PrewarmListener implements IAlterSuiteListener {
+    
+    @Override
+    public void alter(List<XmlSuite> suites) {
+        // Browsers left behind by a killed earlier run would compete with this one for memory
+        BrowserWatchdog.getInstance().reapOrphans();
+        for (XmlSuite suite : suites) {
+            BrowserProfile profile = BrowserProfile.resolve(suite.getParameter("profile"));
+            int sessions = Integer.getInteger("prewarm", 0);
+            // Every browser of a matrix
+            for (String browserName : ParallelSuiteListener.browsers(suite.getParameter("browser"))) {
+                if (sessions > 0) {
+                    TestLog.info("Pre-warming " + sessions + " " + browserName + "/" + profile + " session(s)");
+                    DriverPool.getInstance().prewarm(browserName, profile, sessions);
+                } else {
+                    Thread resolver = new Thread(() -> resolveQuietly(browserName), "driver-resolve-" + browserName);
+                    resolver.setDaemon(true);
+                    resolver.start();
+                }
+            }
+        }
+    }
+    
+    private static void resolveQuietly(String browser) {
+        try {
+            DriverBinaries.resolve(browser);
+        } catch (RuntimeException e) {
+            // The first test resolves it again and reports the failure
+            TestLog.warn("Could not resolve the " + browser + " driver in the background: " + e.getMessage());
+        }
+    }
+}
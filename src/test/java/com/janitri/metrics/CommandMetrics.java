@@ -0,0 +1,172 @@
+package com.janitri.metrics;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.support.events.EventFiringDecorator;
+import org.openqa.selenium.support.events.WebDriverListener;
+
+import com.janitri.utils.TestLog;
+
+/**
+ * Times every WebDriver and WebElement command issued through the driver returned by
+ * {@code BaseTest.getDriver()} and aggregates the timings per command and per test.
+ *
+ * The decorated driver records into lock-free {@link LatencyHistogram}s; at the end of the suite
+ * the histograms are exported to {@code target/perf/command-latency.json} and summarised on the
+ * console. Disable with -Dmetrics.commands=false.
+ */
+public final class CommandMetrics {
+    
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("metrics.commands", "true"));
+    private static final String NO_TEST = "(outside tests)";
+    
+    // Local accessors that never reach the browser
+    private static final Set<String> IGNORED = new HashSet<>(Arrays.asList(
+            "manage", "navigate", "switchTo", "timeouts", "window", "logs", "options",
+            "getWrappedDriver", "getWrappedElement", "equals", "hashCode", "toString"));
+    
+    private static final Map<String, LatencyHistogram> byCommand = new ConcurrentHashMap<>();
+    private static final Map<String, Map<String, LatencyHistogram>> byTest = new ConcurrentHashMap<>();
+    private static final ThreadLocal<String> currentTest = new ThreadLocal<>();
+    private static final ThreadLocal<Deque<Long>> startTimes = ThreadLocal.withInitial(ArrayDeque::new);
+    // Commands of the test running on this thread; rows of a data-driven test share a name but not a count
+    private static final ThreadLocal<long[]> testCommands = ThreadLocal.withInitial(() -> new long[1]);
+    
+    private static final WebDriverListener LISTENER = new WebDriverListener() {
+        @Override
+        public void beforeAnyCall(Object target, Method method, Object[] args) {
+            if (!IGNORED.contains(method.getName())) {
+                startTimes.get().push(System.nanoTime());
+            }
+        }
+        
+        @Override
+        public void afterAnyCall(Object target, Method method, Object[] args, Object result) {
+            finish(method);
+        }
+        
+        @Override
+        public void onError(Object target, Method method, Object[] args, InvocationTargetException e) {
+            finish(method);
+        }
+    };
+    
+    private CommandMetrics() {
+    }
+    
+    public static WebDriver decorate(WebDriver driver) {
+        return ENABLED ? new EventFiringDecorator<>(LISTENER).decorate(driver) : driver;
+    }
+    
+    public static void startTest(String testName) {
+        currentTest.set(testName);
+        testCommands.get()[0] = 0;
+    }
+    
+    // Commands issued so far by the test running on this thread
+    public static long currentCommandCount() {
+        return testCommands.get()[0];
+    }
+    
+    // Returns the number of commands the test issued
+    public static long endTest() {
+        currentTest.remove();
+        startTimes.get().clear();
+        return testCommands.get()[0];
+    }
+    
+    public static long getCommandCount(String testName) {
+        Map<String, LatencyHistogram> commands = byTest.get(testName);
+        return commands == null ? 0 : commands.values().stream().mapToLong(LatencyHistogram::getCount).sum();
+    }
+    
+    private static void finish(Method method) {
+        if (IGNORED.contains(method.getName())) {
+            return;
+        }
+        Long start = startTimes.get().poll();
+        if (start == null) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        String command = method.getName();
+        String test = currentTest.get();
+        testCommands.get()[0]++;
+        byCommand.computeIfAbsent(command, key -> new LatencyHistogram()).recordNanos(elapsed);
+        byTest.computeIfAbsent(test != null ? test : NO_TEST, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(command, key -> new LatencyHistogram()).recordNanos(elapsed);
+    }
+    
+    public static void export(Path directory) {
+        if (!ENABLED || byCommand.isEmpty()) {
+            return;
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("commands", toJson(byCommand));
+        Map<String, Object> tests = new TreeMap<>();
+        byTest.forEach((test, commands) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            LatencyHistogram all = new LatencyHistogram();
+            commands.values().forEach(histogram -> histogram.mergeInto(all));
+            entry.put("all", stats(all));
+            entry.put("commands", toJson(commands));
+            tests.put(test, entry);
+        });
+        report.put("tests", tests);
+        
+        Path file = directory.resolve("command-latency.json");
+        try {
+            Files.createDirectories(directory);
+            Files.write(file, new Json().toJson(report).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            TestLog.warn("Could not write " + file + ": " + e.getMessage());
+        }
+        TestLog.info(describe());
+        TestLog.info("Command latency report: " + file);
+    }
+    
+    public static String describe() {
+        StringBuilder summary = new StringBuilder("=== WebDriver Command Latency (ms) ===").append(System.lineSeparator())
+                .append(String.format("%-22s %7s %9s %8s %8s %8s %8s", "command", "count", "total", "p50", "p95", "p99", "max"));
+        new TreeMap<>(byCommand).forEach((command, histogram) -> summary.append(System.lineSeparator())
+                .append(String.format("%-22s %7d %9.0f %8.1f %8.1f %8.1f %8.1f", command, histogram.getCount(),
+                        histogram.getTotalMicros() / 1000.0, histogram.percentileMicros(50) / 1000.0,
+                        histogram.percentileMicros(95) / 1000.0, histogram.percentileMicros(99) / 1000.0,
+                        histogram.getMaxMicros() / 1000.0)));
+        return summary.toString();
+    }
+    
+    private static Map<String, Object> toJson(Map<String, LatencyHistogram> histograms) {
+        Map<String, Object> json = new TreeMap<>();
+        histograms.forEach((command, histogram) -> json.put(command, stats(histogram)));
+        return json;
+    }
+    
+    private static Map<String, Object> stats(LatencyHistogram histogram) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", histogram.getCount());
+        stats.put("totalMs", histogram.getTotalMicros() / 1000.0);
+        stats.put("meanMs", histogram.getMeanMicros() / 1000.0);
+        stats.put("p50Ms", histogram.percentileMicros(50) / 1000.0);
+        stats.put("p95Ms", histogram.percentileMicros(95) / 1000.0);
+        stats.put("p99Ms", histogram.percentileMicros(99) / 1000.0);
+        stats.put("maxMs", histogram.getMaxMicros() / 1000.0);
+        return stats;
+    }
+}
@@ -0,0 +1,99 @@
+package com.janitri.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear latency histogram in microseconds.
+ *
+ * Values below 32 µs get exact buckets; above that each power of two is split into 32 linear
+ * sub-buckets, so any percentile is reported within about 3% of the true value. Recording is a
+ * couple of array increments, cheap enough to leave on for every WebDriver call.
+ */
+public class LatencyHistogram {
+    
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+    
+    public void recordNanos(long nanos) {
+        record(Math.max(0, nanos / 1_000));
+    }
+    
+    public void record(long micros) {
+        counts.incrementAndGet(bucketOf(micros));
+        count.increment();
+        sum.add(micros);
+        max.accumulateAndGet(micros, Math::max);
+    }
+    
+    public long getCount() {
+        return count.sum();
+    }
+    
+    public long getTotalMicros() {
+        return sum.sum();
+    }
+    
+    public long getMaxMicros() {
+        return max.get();
+    }
+    
+    public double getMeanMicros() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+    
+    // Upper bound of the bucket holding the given percentile (0-100), capped at the recorded max
+    public long percentileMicros(double percentile) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(bucket), max.get());
+            }
+        }
+        return max.get();
+    }
+    
+    public void mergeInto(LatencyHistogram target) {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            long bucketCount = counts.get(bucket);
+            if (bucketCount > 0) {
+                target.counts.addAndGet(bucket, bucketCount);
+            }
+        }
+        target.count.add(count.sum());
+        target.sum.add(sum.sum());
+        target.max.accumulateAndGet(max.get(), Math::max);
+    }
+    
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift);
+        return (shift + 1) * SUB_BUCKETS + subBucket - SUB_BUCKETS;
+    }
+    
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long subBucket = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
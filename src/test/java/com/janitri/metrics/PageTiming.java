@@ -0,0 +1,309 @@
+package com.janitri.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.logging.LogEntry;
+import org.openqa.selenium.logging.LogType;
+
+import com.janitri.utils.TestLog;
+
+/**
+ * Load timings of the page the browser is on, from the Navigation and Paint Timing APIs:
+ * TTFB, DOMContentLoaded, load and first contentful paint, all relative to navigation start.
+ *
+ * Per-request timings come from Resource Timing, or on Chrome with -Dperf.network.capture=true from
+ * the DevTools network events in the performance log, which also see the document itself and the
+ * real transfer size of cross-origin responses. That log is off by default: once {@code DriverFactory}
+ * enables it, Chrome buffers every network event of every test on the session, measured or not.
+ */
+public final class PageTiming {
+    
+    public static final boolean NETWORK_CAPTURE = Boolean.parseBoolean(System.getProperty("perf.network.capture", "false"));
+    
+    // Waits for the load event to finish so loadEventEnd is set, then reads every timing in one round trip
+    private static final String COLLECT_SCRIPT =
+            "var done = arguments[arguments.length - 1];"
+            + "function collect() {"
+            + "  var nav = performance.getEntriesByType('navigation')[0];"
+            + "  var t = performance.timing, start = t.navigationStart;"
+            + "  var result = nav ? {"
+            + "    url: nav.name, ttfb: nav.responseStart, domContentLoaded: nav.domContentLoadedEventEnd,"
+            + "    load: nav.loadEventEnd, documentBytes: nav.transferSize || 0"
+            + "  } : {"
+            + "    url: location.href, ttfb: t.responseStart - start, domContentLoaded: t.domContentLoadedEventEnd - start,"
+            + "    load: t.loadEventEnd - start, documentBytes: 0"
+            + "  };"
+            + "  var paints = performance.getEntriesByType('paint');"
+            + "  for (var i = 0; i < paints.length; i++) {"
+            + "    if (paints[i].name === 'first-contentful-paint') { result.firstContentfulPaint = paints[i].startTime; }"
+            + "  }"
+            + "  result.resources = performance.getEntriesByType('resource').map(function (r) {"
+            + "    return { url: r.name, type: r.initiatorType, duration: r.duration, bytes: r.transferSize || 0 };"
+            + "  });"
+            + "  done(result);"
+            + "}"
+            + "if (document.readyState === 'complete') { setTimeout(collect, 0); }"
+            + "else { window.addEventListener('load', function () { setTimeout(collect, 0); }); }";
+    
+    public static final class Resource {
+        
+        private final String url;
+        private final String type;
+        private final double durationMs;
+        private final long bytes;
+        
+        Resource(String url, String type, double durationMs, long bytes) {
+            this.url = url;
+            this.type = type;
+            this.durationMs = durationMs;
+            this.bytes = bytes;
+        }
+        
+        public String getUrl() {
+            return url;
+        }
+        
+        public String getType() {
+            return type;
+        }
+        
+        public double getDurationMs() {
+            return durationMs;
+        }
+        
+        public long getBytes() {
+            return bytes;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%8.0f ms %8.1f KB  %-10s %s", durationMs, bytes / 1024.0, type, url);
+        }
+    }
+    
+    private final String url;
+    private final double ttfbMs;
+    private final double domContentLoadedMs;
+    private final double loadMs;
+    private final Double firstContentfulPaintMs;
+    private final List<Resource> resources;
+    private final long transferBytes;
+    private final String resourceSource;
+    
+    private PageTiming(String url, double ttfbMs, double domContentLoadedMs, double loadMs, Double firstContentfulPaintMs,
+                       List<Resource> resources, long transferBytes, String resourceSource) {
+        this.url = url;
+        this.ttfbMs = ttfbMs;
+        this.domContentLoadedMs = domContentLoadedMs;
+        this.loadMs = loadMs;
+        this.firstContentfulPaintMs = firstContentfulPaintMs;
+        this.resources = resources;
+        this.transferBytes = transferBytes;
+        this.resourceSource = resourceSource;
+    }
+    
+    /**
+     * Collects the timings of the current page, waiting for its load event if it is still loading.
+     */
+    @SuppressWarnings("unchecked")
+    public static PageTiming collect(WebDriver driver) {
+        Map<String, Object> page = (Map<String, Object>) ((JavascriptExecutor) driver).executeAsyncScript(COLLECT_SCRIPT);
+        String url = (String) page.get("url");
+        
+        List<Resource> resources = networkResources(driver, url);
+        String source = "devtools";
+        long transfer = resources.stream().mapToLong(Resource::getBytes).sum();
+        if (resources.isEmpty()) {
+            source = "resource timing";
+            for (Map<String, Object> entry : (List<Map<String, Object>>) page.get("resources")) {
+                resources.add(new Resource((String) entry.get("url"), (String) entry.get("type"),
+                        number(entry.get("duration")), (long) number(entry.get("bytes"))));
+            }
+            transfer = (long) number(page.get("documentBytes")) + resources.stream().mapToLong(Resource::getBytes).sum();
+        }
+        Object paint = page.get("firstContentfulPaint");
+        return new PageTiming(url, number(page.get("ttfb")), number(page.get("domContentLoaded")), number(page.get("load")),
+                paint == null ? null : number(paint), resources, transfer, source);
+    }
+    
+    // Drops buffered DevTools events so they do not pile up in chromedriver between measurements
+    public static void discardNetworkLog(WebDriver driver) {
+        try {
+            driver.manage().logs().get(LogType.PERFORMANCE);
+        } catch (RuntimeException e) {
+            // Not a Chrome session, or performance logging is off
+        }
+    }
+    
+    // Requests of the latest navigation to the page, from Network.* events in Chrome's performance log
+    @SuppressWarnings("unchecked")
+    private static List<Resource> networkResources(WebDriver driver, String pageUrl) {
+        List<LogEntry> entries;
+        try {
+            if (!NETWORK_CAPTURE || !driver.manage().logs().getAvailableLogTypes().contains(LogType.PERFORMANCE)) {
+                return new ArrayList<>();
+            }
+            entries = driver.manage().logs().get(LogType.PERFORMANCE).getAll();
+        } catch (RuntimeException e) {
+            TestLog.debug(() -> "No DevTools network log: " + e.getMessage());
+            return new ArrayList<>();
+        }
+        
+        Json json = new Json();
+        Map<String, Map<String, Object>> requests = new LinkedHashMap<>();
+        for (LogEntry entry : entries) {
+            Map<String, Object> logged = json.toType(entry.getMessage(), Json.MAP_TYPE);
+            Map<String, Object> message = (Map<String, Object>) logged.get("message");
+            String method = (String) message.get("method");
+            Map<String, Object> params = (Map<String, Object>) message.get("params");
+            if (method == null || params == null || !method.startsWith("Network.")) {
+                continue;
+            }
+            String id = (String) params.get("requestId");
+            switch (method) {
+                case "Network.requestWillBeSent":
+                    Map<String, Object> request = (Map<String, Object>) params.get("request");
+                    // Only keep what the latest load of this page requested
+                    if ("Document".equals(params.get("type")) && sameDocument((String) request.get("url"), pageUrl)) {
+                        requests.clear();
+                    }
+                    Map<String, Object> timing = new HashMap<>();
+                    timing.put("url", request.get("url"));
+                    timing.put("type", params.get("type"));
+                    timing.put("start", params.get("timestamp"));
+                    requests.put(id, timing);
+                    break;
+                case "Network.loadingFinished":
+                    if (requests.containsKey(id)) {
+                        requests.get(id).put("end", params.get("timestamp"));
+                        requests.get(id).put("bytes", params.get("encodedDataLength"));
+                    }
+                    break;
+                case "Network.loadingFailed":
+                    if (requests.containsKey(id)) {
+                        requests.get(id).put("end", params.get("timestamp"));
+                        requests.get(id).put("type", params.get("type") + " (failed)");
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        
+        List<Resource> resources = new ArrayList<>();
+        for (Map<String, Object> timing : requests.values()) {
+            if (timing.get("end") == null || String.valueOf(timing.get("url")).startsWith("data:")) {
+                continue;
+            }
+            double seconds = number(timing.get("end")) - number(timing.get("start"));
+            resources.add(new Resource((String) timing.get("url"), String.valueOf(timing.get("type")).toLowerCase(),
+                    seconds * 1000, (long) number(timing.get("bytes"))));
+        }
+        return resources;
+    }
+    
+    private static boolean sameDocument(String requestUrl, String pageUrl) {
+        return requestUrl != null && pageUrl != null && strip(requestUrl).equals(strip(pageUrl));
+    }
+    
+    private static String strip(String url) {
+        int hash = url.indexOf('#');
+        return hash >= 0 ? url.substring(0, hash) : url;
+    }
+    
+    private static double number(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : 0;
+    }
+    
+    public String getUrl() {
+        return url;
+    }
+    
+    public double getTtfbMs() {
+        return ttfbMs;
+    }
+    
+    public double getDomContentLoadedMs() {
+        return domContentLoadedMs;
+    }
+    
+    public double getLoadMs() {
+        return loadMs;
+    }
+    
+    // null when the browser reports no paint timing
+    public Double getFirstContentfulPaintMs() {
+        return firstContentfulPaintMs;
+    }
+    
+    public List<Resource> getResources() {
+        return Collections.unmodifiableList(resources);
+    }
+    
+    public long getTransferBytes() {
+        return transferBytes;
+    }
+    
+    public List<Resource> slowestResources(int limit) {
+        List<Resource> sorted = new ArrayList<>(resources);
+        sorted.sort(Comparator.comparingDouble(Resource::getDurationMs).reversed());
+        return sorted.subList(0, Math.min(limit, sorted.size()));
+    }
+    
+    public Map<String, Object> toJson() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("url", url);
+        json.put("ttfbMs", ttfbMs);
+        json.put("domContentLoadedMs", domContentLoadedMs);
+        json.put("loadMs", loadMs);
+        json.put("firstContentfulPaintMs", firstContentfulPaintMs);
+        json.put("transferBytes", transferBytes);
+        json.put("requests", resources.size());
+        json.put("resourceSource", resourceSource);
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (Resource resource : resources) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("url", resource.url);
+            entry.put("type", resource.type);
+            entry.put("durationMs", resource.durationMs);
+            entry.put("bytes", resource.bytes);
+            list.add(entry);
+        }
+        json.put("resources", list);
+        return json;
+    }
+    
+    // Writes the timings to <directory>/page-timing-<page>.json
+    public void export(Path directory, String page) {
+        Path file = directory.resolve("page-timing-" + page + ".json");
+        try {
+            Files.createDirectories(directory);
+            Files.write(file, new Json().toJson(toJson()).getBytes(StandardCharsets.UTF_8));
+            TestLog.info("Page timing report: " + file);
+        } catch (IOException e) {
+            TestLog.warn("Could not write page timing report " + file + ": " + e.getMessage());
+        }
+    }
+    
+    public String describe() {
+        return String.format("=== Page Timing: %s ===%n"
+                        + "TTFB: %.0f ms, DOMContentLoaded: %.0f ms, load: %.0f ms, first contentful paint: %s%n"
+                        + "Requests: %d, transferred: %.1f KB (%s)",
+                url, ttfbMs, domContentLoadedMs, loadMs,
+                firstContentfulPaintMs == null ? "n/a" : String.format("%.0f ms", firstContentfulPaintMs),
+                resources.size(), transferBytes / 1024.0, resourceSource);
+    }
+}
@@ -0,0 +1,88 @@
+package com.janitri.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Limits a {@link PageTiming} must stay within. Each limit is a system property, optionally
+ * narrowed to one page by putting the page name in front, e.g. -Dperf.budget.login.load.ms=2500:
+ *
+ *   perf.budget.ttfb.ms      - time to first byte (default 1500)
+ *   perf.budget.dcl.ms       - DOMContentLoaded (default 4000)
+ *   perf.budget.load.ms      - load event end (default 5000)
+ *   perf.budget.fcp.ms       - first contentful paint (default 3000)
+ *   perf.budget.transfer.kb  - bytes transferred for the page and its resources (default 3072)
+ *   perf.budget.requests     - number of requests (default 100)
+ */
+public final class PerformanceBudget {
+    
+    private static final String PREFIX = "perf.budget.";
+    private static final int SLOWEST_SHOWN = 5;
+    
+    private final String page;
+    private final Map<String, Double> limits = new LinkedHashMap<>();
+    
+    private PerformanceBudget(String page) {
+        this.page = page;
+    }
+    
+    public static PerformanceBudget forPage(String page) {
+        PerformanceBudget budget = new PerformanceBudget(page);
+        budget.limit("ttfb.ms", 1500);
+        budget.limit("dcl.ms", 4000);
+        budget.limit("load.ms", 5000);
+        budget.limit("fcp.ms", 3000);
+        budget.limit("transfer.kb", 3072);
+        budget.limit("requests", 100);
+        return budget;
+    }
+    
+    private void limit(String metric, double defaultValue) {
+        String value = System.getProperty(PREFIX + page + "." + metric, System.getProperty(PREFIX + metric));
+        limits.put(metric, value == null || value.isBlank() ? defaultValue : Double.parseDouble(value.trim()));
+    }
+    
+    public Map<String, Double> getLimits() {
+        return limits;
+    }
+    
+    // Empty when the page is within every limit
+    public List<String> violations(PageTiming timing) {
+        List<String> violations = new ArrayList<>();
+        check(violations, "TTFB", timing.getTtfbMs(), "ttfb.ms", " ms");
+        check(violations, "DOMContentLoaded", timing.getDomContentLoadedMs(), "dcl.ms", " ms");
+        check(violations, "load", timing.getLoadMs(), "load.ms", " ms");
+        if (timing.getFirstContentfulPaintMs() != null) {
+            check(violations, "first contentful paint", timing.getFirstContentfulPaintMs(), "fcp.ms", " ms");
+        }
+        check(violations, "transfer", timing.getTransferBytes() / 1024.0, "transfer.kb", " KB");
+        check(violations, "requests", timing.getResources().size(), "requests", "");
+        return violations;
+    }
+    
+    private void check(List<String> violations, String label, double value, String metric, String unit) {
+        double limit = limits.get(metric);
+        if (value > limit) {
+            violations.add(String.format("%s %.0f%s > %.0f%s", label, value, unit, limit, unit));
+        }
+    }
+    
+    /**
+     * Failure message listing what went over budget and the slowest resources, or null when the page
+     * is within budget.
+     */
+    public String report(PageTiming timing) {
+        List<String> violations = violations(timing);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        StringBuilder report = new StringBuilder("Page '").append(page).append("' over budget (").append(timing.getUrl()).append("):");
+        violations.forEach(violation -> report.append(System.lineSeparator()).append("  ").append(violation));
+        report.append(System.lineSeparator()).append("Slowest resources:");
+        timing.slowestResources(SLOWEST_SHOWN).forEach(resource ->
+                report.append(System.lineSeparator()).append("  ").append(resource));
+        return report.toString();
+    }
+}
@@ -0,0 +1,458 @@
+package com.janitri.metrics;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonException;
+import org.openqa.selenium.json.JsonOutput;
+
+import com.janitri.utils.TestLog;
+
+/**
+ * Append-only history of test timings across runs, one JSON object per line in
+ * {@code .cache/run-history.ndjson}, each tagged with the run and the git commit it ran against.
+ *
+ * Every finished test appends its duration, wait time and WebDriver command count; the end of the
+ * suite appends the suite's wall time. Lines are written by a background thread, so a test only pays
+ * for handing its record over, and a killed run keeps everything finished before it died.
+ *
+ * At the end of a run each test is compared with its baseline: the median of its passing runs among
+ * the previous {@code history.baseline.runs}. A test counts as regressed when it is slower by more than
+ * the threshold and the minimum, and its robust z-score (distance from the median in units of the
+ * scaled median absolute deviation) is above {@value #Z_LIMIT}, so the normal run-to-run jitter
+ * of a test does not get it flagged. {@code com.janitri.tools.TrendReport} prints the trend per commit.
+ *
+ *   history.enabled              - false turns recording and comparison off
+ *   history.file                 - store (default .cache/run-history.ndjson)
+ *   history.commit               - commit to record (default GIT_COMMIT, GITHUB_SHA or git rev-parse HEAD)
+ *   history.run                  - run id (default random); the shards of one ShardLauncher run share it
+ *   history.suite.record         - false leaves the suite's wall time to the launcher of a sharded run
+ *   history.baseline.runs        - previous runs the baseline is taken from (default 10)
+ *   history.min.runs             - runs a test needs in its baseline before it is compared (default 5)
+ *   history.regression.percent   - how much slower counts as a regression (default 20)
+ *   history.regression.min.ms    - smallest slowdown worth reporting (default 100)
+ */
+public final class RunHistory {
+    
+    public static final String SUITE = "(suite)";
+    private static final double Z_LIMIT = 3.0;
+    // Scales a median absolute deviation to a standard deviation for normally distributed timings
+    private static final double MAD_SCALE = 1.4826;
+    private static final boolean RECORD_SUITE = Boolean.parseBoolean(System.getProperty("history.suite.record", "true"));
+    
+    private static final RunHistory INSTANCE = new RunHistory(
+            Boolean.parseBoolean(System.getProperty("history.enabled", "true")),
+            Paths.get(System.getProperty("history.file", ".cache/run-history.ndjson")));
+    
+    /**
+     * One line of the store.
+     */
+    public static final class Entry {
+        
+        private final String run;
+        private final String commit;
+        private final long timestamp;
+        private final String test;
+        private final String status;
+        private final long durationMs;
+        private final long waitMs;
+        private final long commands;
+        
+        public Entry(String run, String commit, long timestamp, String test, String status,
+                     long durationMs, long waitMs, long commands) {
+            this.run = run;
+            this.commit = commit;
+            this.timestamp = timestamp;
+            this.test = test;
+            this.status = status;
+            this.durationMs = durationMs;
+            this.waitMs = waitMs;
+            this.commands = commands;
+        }
+        
+        public String getRun() {
+            return run;
+        }
+        
+        public String getCommit() {
+            return commit;
+        }
+        
+        public long getTimestamp() {
+            return timestamp;
+        }
+        
+        public String getTest() {
+            return test;
+        }
+        
+        public String getStatus() {
+            return status;
+        }
+        
+        public boolean isPassed() {
+            return "PASS".equals(status);
+        }
+        
+        public long getDurationMs() {
+            return durationMs;
+        }
+        
+        public long getWaitMs() {
+            return waitMs;
+        }
+        
+        public long getCommands() {
+            return commands;
+        }
+        
+        Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("run", run);
+            json.put("commit", commit);
+            json.put("timestamp", timestamp);
+            json.put("test", test);
+            json.put("status", status);
+            json.put("durationMs", durationMs);
+            json.put("waitMs", waitMs);
+            json.put("commands", commands);
+            return json;
+        }
+        
+        static Entry fromJson(Map<String, Object> json) {
+            return new Entry((String) json.get("run"), (String) json.get("commit"), number(json.get("timestamp")),
+                    (String) json.get("test"), (String) json.get("status"), number(json.get("durationMs")),
+                    number(json.get("waitMs")), number(json.get("commands")));
+        }
+        
+        private static long number(Object value) {
+            return value instanceof Number ? ((Number) value).longValue() : 0;
+        }
+    }
+    
+    /**
+     * A test that ran slower than its baseline.
+     */
+    public static final class Regression {
+        
+        private final Entry current;
+        private final double baselineMs;
+        private final double baselineCommands;
+        private final double zScore;
+        private final int baselineRuns;
+        
+        Regression(Entry current, double baselineMs, double baselineCommands, double zScore, int baselineRuns) {
+            this.current = current;
+            this.baselineMs = baselineMs;
+            this.baselineCommands = baselineCommands;
+            this.zScore = zScore;
+            this.baselineRuns = baselineRuns;
+        }
+        
+        public String getTest() {
+            return current.test;
+        }
+        
+        public double getSlowdownPercent() {
+            return (current.durationMs - baselineMs) * 100 / baselineMs;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%s: %d ms vs baseline %.0f ms (+%.0f%%, z=%s, %d runs); commands %d vs %.0f",
+                    current.test, current.durationMs, baselineMs, getSlowdownPercent(),
+                    Double.isInfinite(zScore) ? "inf" : String.format("%.1f", zScore), baselineRuns,
+                    current.commands, baselineCommands);
+        }
+    }
+    
+    private final boolean enabled;
+    private final Path file;
+    private final String run = System.getProperty("history.run", UUID.randomUUID().toString().substring(0, 8));
+    private final long startedAt = System.currentTimeMillis();
+    private final List<Entry> recorded = Collections.synchronizedList(new ArrayList<>());
+    private volatile String commit;
+    private volatile ExecutorService writer;
+    private BufferedWriter out;
+    
+    private RunHistory(boolean enabled, Path file) {
+        this.enabled = enabled;
+        this.file = file;
+    }
+    
+    public static RunHistory getInstance() {
+        return INSTANCE;
+    }
+    
+    public void record(String test, String status, long durationMs, long waitMs, long commands) {
+        if (!enabled) {
+            return;
+        }
+        Entry entry = new Entry(run, commit(), System.currentTimeMillis(), test, status, durationMs, waitMs, commands);
+        recorded.add(entry);
+        writer().execute(() -> append(entry));
+    }
+    
+    /**
+     * Appends the suite's wall time, waits for pending lines to be written and returns the tests of
+     * this run that regressed against their baseline.
+     */
+    public List<Regression> finish() {
+        if (!enabled || recorded.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // A shard only sees part of the run; its launcher records the wall time of the whole
+        if (RECORD_SUITE) {
+            List<Entry> tests;
+            synchronized (recorded) {
+                tests = new ArrayList<>(recorded);
+            }
+            recordSuite(SUITE, System.currentTimeMillis() - startedAt, tests);
+        }
+        return drainAndCompare();
+    }
+    
+    /**
+     * Appends the wall time of a run whose tests were recorded by other JVMs under the same
+     * {@code history.run}, such as the shards of {@code ShardLauncher}, and returns the suite's
+     * regression against earlier runs, if any. The wall time includes starting the shard JVMs, so it
+     * is kept apart per shard count, e.g. {@code (suite) [4 shards]}, rather than compared with
+     * unsharded runs.
+     */
+    public List<Regression> finishSharded(long wallMs, int shards) {
+        if (!enabled) {
+            return Collections.emptyList();
+        }
+        List<Entry> tests = load(file).stream()
+                .filter(entry -> run.equals(entry.run) && !entry.test.startsWith(SUITE))
+                .collect(Collectors.toList());
+        if (tests.isEmpty()) {
+            return Collections.emptyList();
+        }
+        recordSuite(SUITE + " [" + shards + " shards]", wallMs, tests);
+        return drainAndCompare();
+    }
+    
+    private void recordSuite(String name, long wallMs, List<Entry> tests) {
+        record(name, "PASS", wallMs, tests.stream().mapToLong(Entry::getWaitMs).sum(),
+                tests.stream().mapToLong(Entry::getCommands).sum());
+    }
+    
+    // Waits for pending lines, then compares what this JVM recorded with the earlier runs
+    private List<Regression> drainAndCompare() {
+        ExecutorService pending = writer;
+        pending.shutdown();
+        try {
+            if (!pending.awaitTermination(10, TimeUnit.SECONDS)) {
+                TestLog.warn("Run history was still being written when the suite finished");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeQuietly();
+        
+        List<Entry> previous = load(file).stream()
+                .filter(entry -> !run.equals(entry.run))
+                .collect(Collectors.toList());
+        List<Entry> current;
+        synchronized (recorded) {
+            current = new ArrayList<>(recorded);
+        }
+        return regressions(previous, current);
+    }
+    
+    private ExecutorService writer() {
+        if (writer == null) {
+            synchronized (this) {
+                if (writer == null) {
+                    writer = Executors.newSingleThreadExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "run-history-writer");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return writer;
+    }
+    
+    // Runs on the writer thread only; lines are flushed one at a time so a killed run loses nothing finished
+    private void append(Entry entry) {
+        try {
+            if (out == null) {
+                if (file.getParent() != null) {
+                    Files.createDirectories(file.getParent());
+                }
+                out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            StringBuilder line = new StringBuilder();
+            try (JsonOutput json = new Json().newOutput(line)) {
+                json.setPrettyPrint(false).write(entry.toJson());
+            }
+            out.write(line.toString());
+            out.newLine();
+            out.flush();
+        } catch (IOException e) {
+            TestLog.warn("Could not append to run history " + file + ": " + e.getMessage());
+        }
+    }
+    
+    private void closeQuietly() {
+        try {
+            if (out != null) {
+                out.close();
+            }
+        } catch (IOException e) {
+            // Everything was flushed line by line
+        }
+    }
+    
+    /**
+     * Reads every entry of a store, oldest first. Lines that are not valid JSON, such as one cut off
+     * by a killed run, are skipped.
+     */
+    public static List<Entry> load(Path file) {
+        List<Entry> entries = new ArrayList<>();
+        if (!Files.isRegularFile(file)) {
+            return entries;
+        }
+        Json json = new Json();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    entries.add(Entry.fromJson(json.toType(line, Json.MAP_TYPE)));
+                } catch (JsonException | ClassCastException e) {
+                    TestLog.debug(() -> "Skipping a damaged run history line in " + file);
+                }
+            }
+        } catch (IOException e) {
+            TestLog.warn("Could not read run history " + file + ": " + e.getMessage());
+        }
+        return entries;
+    }
+    
+    /**
+     * Compares each passing test of the current run with the median of its passing results in the
+     * latest {@code history.baseline.runs} of the previous runs.
+     */
+    public static List<Regression> regressions(List<Entry> previous, List<Entry> current) {
+        int baselineRuns = Integer.getInteger("history.baseline.runs", 10);
+        int minRuns = Integer.getInteger("history.min.runs", 5);
+        double percent = Double.parseDouble(System.getProperty("history.regression.percent", "20"));
+        long minMillis = Long.getLong("history.regression.min.ms", 100);
+        
+        // Latest runs first
+        List<String> runs = new ArrayList<>(previous.stream().map(Entry::getRun).collect(Collectors.toCollection(LinkedHashSet::new)));
+        Collections.reverse(runs);
+        Set<String> window = new LinkedHashSet<>(runs.subList(0, Math.min(baselineRuns, runs.size())));
+        
+        List<Regression> regressions = new ArrayList<>();
+        for (Entry entry : current) {
+            if (!entry.isPassed()) {
+                continue;
+            }
+            List<Entry> baseline = previous.stream()
+                    .filter(past -> past.isPassed() && past.test.equals(entry.test) && window.contains(past.run))
+                    .collect(Collectors.toList());
+            if (baseline.size() < minRuns) {
+                continue;
+            }
+            double[] durations = baseline.stream().mapToDouble(Entry::getDurationMs).toArray();
+            double median = median(durations);
+            double spread = MAD_SCALE * median(Arrays.stream(durations).map(value -> Math.abs(value - median)).toArray());
+            double slowdown = entry.durationMs - median;
+            double zScore = spread > 0 ? slowdown / spread : Double.POSITIVE_INFINITY;
+            if (slowdown >= minMillis && slowdown * 100 >= median * percent && zScore >= Z_LIMIT) {
+                double commands = median(baseline.stream().mapToDouble(Entry::getCommands).toArray());
+                regressions.add(new Regression(entry, median, commands, zScore, baseline.size()));
+            }
+        }
+        return regressions;
+    }
+    
+    public static double median(double[] values) {
+        if (values.length == 0) {
+            return 0;
+        }
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+    
+    // Resolved once per run, on the first record rather than at class loading
+    private String commit() {
+        if (commit == null) {
+            synchronized (this) {
+                if (commit == null) {
+                    commit = resolveCommit();
+                }
+            }
+        }
+        return commit;
+    }
+    
+    private static String resolveCommit() {
+        for (String candidate : new String[] {System.getProperty("history.commit"), System.getenv("GIT_COMMIT"), System.getenv("GITHUB_SHA")}) {
+            if (candidate != null && !candidate.isBlank()) {
+                return shorten(candidate.trim());
+            }
+        }
+        try {
+            Process git = new ProcessBuilder("git", "rev-parse", "HEAD").redirectErrorStream(true).start();
+            String output;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(git.getInputStream(), StandardCharsets.UTF_8))) {
+                output = reader.readLine();
+            }
+            if (git.waitFor(5, TimeUnit.SECONDS) && git.exitValue() == 0 && output != null) {
+                return shorten(output.trim());
+            }
+        } catch (IOException e) {
+            // No git on the path
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "unknown";
+    }
+    
+    private static String shorten(String commit) {
+        return commit.length() > 12 ? commit.substring(0, 12) : commit;
+    }
+    
+    public String describe(List<Regression> regressions) {
+        StringBuilder report = new StringBuilder(String.format("=== Run History ===%n"
+                + "Run %s on commit %s: %d results appended to %s", run, commit, recorded.size(), file));
+        if (regressions.isEmpty()) {
+            report.append(String.format("%nNo regressions against the baseline"));
+        } else {
+            report.append(String.format("%n%d regression(s):", regressions.size()));
+            regressions.forEach(regression -> report.append(String.format("%n  %s", regression)));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,218 @@
+package com.janitri.pages;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsElement;
+import org.openqa.selenium.interactions.Locatable;
+import org.openqa.selenium.support.pagefactory.DefaultFieldDecorator;
+import org.openqa.selenium.support.pagefactory.ElementLocator;
+import org.openqa.selenium.support.pagefactory.ElementLocatorFactory;
+import org.openqa.selenium.support.pagefactory.FieldDecorator;
+
+/**
+ * PageFactory locator factory for fields annotated with {@link LocatorCandidates}.
+ *
+ * Each field resolves its selector once through the {@link LocatorCache} and then keeps using it;
+ * the candidate list is only walked again when the remembered selector stops matching. The page
+ * fingerprint is shared by the fields and taken again before learning a new selector or after a stale
+ * handle, since either can mean the page navigated or the form was not rendered yet when it was first
+ * taken. A lookup that matches nothing keeps it, so polling for an element that is not there yet
+ * costs no extra script per check.
+ *
+ * Fields initialised through {@link #decorator()} also keep the resolved element handle, so
+ * {@code enterPassword} followed by {@code isPasswordMasked} finds the input once instead of once per
+ * call. A handle lives until using it throws {@link StaleElementReferenceException}, which is how
+ * WebDriver reports both a navigation and the element being removed or replaced in the DOM; the
+ * field is then looked up again and the call retried once. Changes inside a live element need no
+ * re-lookup, since every call reads the element's current state.
+ *
+ * Disable handle reuse with -Dlocator.handles=false.
+ */
+public class CachedLocatorFactory implements ElementLocatorFactory {
+    
+    private static final boolean REUSE_HANDLES = Boolean.parseBoolean(System.getProperty("locator.handles", "true"));
+    private static final AtomicLong handleHits = new AtomicLong();
+    private static final AtomicLong handleLookups = new AtomicLong();
+    private static final AtomicLong staleHandles = new AtomicLong();
+    
+    private final WebDriver driver;
+    private final Map<String, CachedLocator> locators = new ConcurrentHashMap<>();
+    private volatile String pageFingerprint;
+    
+    public CachedLocatorFactory(WebDriver driver) {
+        this.driver = driver;
+    }
+    
+    @Override
+    public ElementLocator createLocator(Field field) {
+        LocatorCandidates candidates = field.getAnnotation(LocatorCandidates.class);
+        if (candidates == null) {
+            return null;
+        }
+        CachedLocator locator = new CachedLocator(field.getName(), Arrays.asList(candidates.value()));
+        locators.put(field.getName(), locator);
+        return locator;
+    }
+    
+    // Decorates WebElement fields with proxies that reuse the located element until it goes stale
+    public FieldDecorator decorator() {
+        return new DefaultFieldDecorator(this) {
+            @Override
+            protected WebElement proxyForLocator(ClassLoader loader, ElementLocator locator) {
+                InvocationHandler handler = new HandleReusingHandler(locator);
+                return (WebElement) Proxy.newProxyInstance(loader,
+                        new Class<?>[] {WebElement.class, WrapsElement.class, Locatable.class}, handler);
+            }
+        };
+    }
+    
+    // Resolves the named fields now; true only if every one of them was served from the cache
+    public boolean resolveFromCache(String... fieldNames) {
+        boolean allHits = true;
+        for (String fieldName : fieldNames) {
+            CachedLocator locator = locators.get(fieldName);
+            allHits &= locator != null && locator.resolve(null).isCacheHit();
+        }
+        return allHits;
+    }
+    
+    private String pageFingerprint() {
+        if (pageFingerprint == null) {
+            pageFingerprint = LocatorCache.getInstance().fingerprint(driver);
+        }
+        return pageFingerprint;
+    }
+    
+    public static String describe() {
+        long hits = handleHits.get();
+        long total = hits + handleLookups.get();
+        return String.format("=== Element Handles ===%n"
+                        + "Element accesses: %d (reused handles: %d, lookups: %d, stale re-lookups: %d)%n"
+                        + "Round trips avoided: %d (%.0f%% of accesses)",
+                total, hits, handleLookups.get(), staleHandles.get(), hits, total == 0 ? 0.0 : 100.0 * hits / total);
+    }
+    
+    private static final class HandleReusingHandler implements InvocationHandler {
+        
+        private final ElementLocator locator;
+        
+        HandleReusingHandler(ElementLocator locator) {
+            this.locator = locator;
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            WebElement element;
+            try {
+                element = locator.findElement();
+            } catch (NoSuchElementException e) {
+                if ("toString".equals(method.getName())) {
+                    return "Proxy element for: " + locator;
+                }
+                throw e;
+            }
+            if ("getWrappedElement".equals(method.getName())) {
+                return element;
+            }
+            try {
+                return method.invoke(element, args);
+            } catch (InvocationTargetException e) {
+                if (!(e.getCause() instanceof StaleElementReferenceException) || !(locator instanceof CachedLocator)) {
+                    throw e.getCause();
+                }
+            }
+            // The page navigated or re-rendered the element: look it up again and retry once
+            staleHandles.incrementAndGet();
+            ((CachedLocator) locator).forgetHandle();
+            try {
+                return method.invoke(locator.findElement(), args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+    
+    private class CachedLocator implements ElementLocator {
+        
+        private final String name;
+        private final List<String> candidates;
+        private volatile String selector;
+        private volatile WebElement handle;
+        
+        CachedLocator(String name, List<String> candidates) {
+            this.name = name;
+            this.candidates = candidates;
+        }
+        
+        // missed: this field's selector, when it has just matched nothing
+        LocatorCache.Resolution resolve(String missed) {
+            LocatorCache cache = LocatorCache.getInstance();
+            LocatorCache.Resolution resolution = cache.resolve(driver, pageFingerprint(), name, candidates, missed);
+            if (!resolution.isCacheHit() && resolution.getSelector() != null) {
+                // Learn under the page as it is now, not as it was before a navigation or before the form rendered
+                pageFingerprint = null;
+                cache.remember(pageFingerprint(), name, resolution.getSelector());
+            }
+            if (resolution.getSelector() != null) {
+                selector = resolution.getSelector();
+            }
+            return resolution;
+        }
+        
+        @Override
+        public WebElement findElement() {
+            WebElement cached = handle;
+            if (cached != null) {
+                handleHits.incrementAndGet();
+                return cached;
+            }
+            handleLookups.incrementAndGet();
+            List<WebElement> elements = findElements();
+            if (elements.isEmpty()) {
+                throw new NoSuchElementException("No locator candidate matched '" + name + "'");
+            }
+            // Misses are never cached: a wait polling for the element must keep looking
+            if (REUSE_HANDLES) {
+                handle = elements.get(0);
+            }
+            return elements.get(0);
+        }
+        
+        // The element went stale, so the page may have navigated as well
+        void forgetHandle() {
+            handle = null;
+            pageFingerprint = null;
+        }
+        
+        @Override
+        public List<WebElement> findElements() {
+            String current = selector;
+            if (current != null) {
+                List<WebElement> elements = driver.findElements(By.xpath(current));
+                if (!elements.isEmpty()) {
+                    return elements;
+                }
+            }
+            return resolve(current).getElements();
+        }
+        
+        @Override
+        public String toString() {
+            return "CachedLocator '" + name + "' (" + (selector != null ? selector : candidates.size() + " candidates") + ")";
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.janitri.pages;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+/**
+ * Evaluates a list of XPath candidates in a single {@code executeScript} round trip and returns
+ * every match with the attributes, text, visibility and enabled state page objects usually ask for
+ * one remote call at a time.
+ *
+ * Drivers that cannot run scripts fall back to the per-element WebDriver calls.
+ */
+public final class ElementProbe {
+    
+    // Matches returned per selector, with their handles, by both the script and the fallback; the count still covers every match
+    private static final int MAX_MATCHES = 25;
+    
+    private static final String PROBE_SCRIPT =
+            "var selectors = arguments[0], max = arguments[1], results = [];"
+            + "function visible(e) {"
+            + "  if (!e.getClientRects || e.getClientRects().length === 0) { return false; }"
+            + "  var style = window.getComputedStyle(e);"
+            + "  return style.visibility !== 'hidden' && style.display !== 'none' && style.opacity !== '0';"
+            + "}"
+            + "for (var i = 0; i < selectors.length; i++) {"
+            + "  var matches = [], count = 0;"
+            + "  try {"
+            + "    var snapshot = document.evaluate(selectors[i], document, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);"
+            + "    count = snapshot.snapshotLength;"
+            + "    for (var j = 0; j < count && j < max; j++) {"
+            + "      var e = snapshot.snapshotItem(j);"
+            + "      if (e.nodeType !== 1) { continue; }"
+            + "      matches.push({"
+            + "        element: e,"
+            + "        tag: e.tagName.toLowerCase(),"
+            + "        type: e.getAttribute('type'),"
+            + "        name: e.getAttribute('name'),"
+            + "        id: e.getAttribute('id'),"
+            + "        placeholder: e.getAttribute('placeholder'),"
+            + "        text: (e.innerText || e.textContent || '').trim().substring(0, 200),"
+            + "        visible: visible(e),"
+            + "        enabled: !e.disabled"
+            + "      });"
+            + "    }"
+            + "  } catch (err) { count = -1; }"
+            + "  results.push({ selector: selectors[i], count: count, matches: matches });"
+            + "}"
+            + "return results;";
+    
+    private ElementProbe() {
+    }
+    
+    public static final class Match {
+        
+        private final WebElement element;
+        private final String tag;
+        private final String type;
+        private final String name;
+        private final String id;
+        private final String placeholder;
+        private final String text;
+        private final boolean visible;
+        private final boolean enabled;
+        
+        Match(WebElement element, String tag, String type, String name, String id, String placeholder,
+              String text, boolean visible, boolean enabled) {
+            this.element = element;
+            this.tag = tag;
+            this.type = type;
+            this.name = name;
+            this.id = id;
+            this.placeholder = placeholder;
+            this.text = text;
+            this.visible = visible;
+            this.enabled = enabled;
+        }
+        
+        public WebElement getElement() {
+            return element;
+        }
+        
+        public String getTag() {
+            return tag;
+        }
+        
+        public String getType() {
+            return type;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public String getId() {
+            return id;
+        }
+        
+        public String getPlaceholder() {
+            return placeholder;
+        }
+        
+        public String getText() {
+            return text;
+        }
+        
+        public boolean isVisible() {
+            return visible;
+        }
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        @Override
+        public String toString() {
+            return "tag=" + tag + ", type=" + type + ", name=" + name + ", id=" + id
+                    + ", placeholder=" + placeholder + ", text='" + text + "', visible=" + visible + ", enabled=" + enabled;
+        }
+    }
+    
+    public static final class Result {
+        
+        private final String selector;
+        private final int count;
+        private final List<Match> matches;
+        
+        Result(String selector, int count, List<Match> matches) {
+            this.selector = selector;
+            this.count = count;
+            this.matches = matches;
+        }
+        
+        public String getSelector() {
+            return selector;
+        }
+        
+        // Total number of matches; -1 if the selector could not be evaluated
+        public int getCount() {
+            return count;
+        }
+        
+        public List<Match> getMatches() {
+            return matches;
+        }
+        
+        public boolean isEmpty() {
+            return matches.isEmpty();
+        }
+        
+        public Match firstVisible() {
+            for (Match match : matches) {
+                if (match.isVisible()) {
+                    return match;
+                }
+            }
+            return null;
+        }
+    }
+    
+    public static List<Result> probe(WebDriver driver, List<String> xpaths) {
+        if (xpaths.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (driver instanceof JavascriptExecutor) {
+            try {
+                Object raw = ((JavascriptExecutor) driver).executeScript(PROBE_SCRIPT, xpaths, MAX_MATCHES);
+                if (raw instanceof List) {
+                    return parse((List<?>) raw);
+                }
+            } catch (RuntimeException e) {
+                // Fall through to the per-element path
+            }
+        }
+        return probeOneByOne(driver, xpaths);
+    }
+    
+    private static List<Result> parse(List<?> raw) {
+        List<Result> results = new ArrayList<>(raw.size());
+        for (Object entry : raw) {
+            Map<?, ?> result = (Map<?, ?>) entry;
+            List<Match> matches = new ArrayList<>();
+            for (Object item : (List<?>) result.get("matches")) {
+                Map<?, ?> match = (Map<?, ?>) item;
+                matches.add(new Match(
+                        (WebElement) match.get("element"),
+                        (String) match.get("tag"),
+                        (String) match.get("type"),
+                        (String) match.get("name"),
+                        (String) match.get("id"),
+                        (String) match.get("placeholder"),
+                        (String) match.get("text"),
+                        Boolean.TRUE.equals(match.get("visible")),
+                        Boolean.TRUE.equals(match.get("enabled"))));
+            }
+            results.add(new Result((String) result.get("selector"), ((Number) result.get("count")).intValue(), matches));
+        }
+        return results;
+    }
+    
+    private static List<Result> probeOneByOne(WebDriver driver, List<String> xpaths) {
+        List<Result> results = new ArrayList<>(xpaths.size());
+        for (String xpath : xpaths) {
+            List<Match> matches = new ArrayList<>();
+            int count;
+            try {
+                List<WebElement> elements = driver.findElements(By.xpath(xpath));
+                count = elements.size();
+                for (WebElement element : elements.subList(0, Math.min(MAX_MATCHES, elements.size()))) {
+                    matches.add(new Match(element, element.getTagName(), element.getAttribute("type"),
+                            element.getAttribute("name"), element.getAttribute("id"), element.getAttribute("placeholder"),
+                            element.getText(), element.isDisplayed(), element.isEnabled()));
+                }
+            } catch (RuntimeException e) {
+                count = -1;
+            }
+            results.add(new Result(xpath, count, matches));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,206 @@
+package com.janitri.pages;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import com.janitri.utils.TestLog;
+
+/**
+ * Remembers which locator candidate matched an element, keyed by a page fingerprint
+ * (URL without query plus a hash of the page's form structure), and persists it between runs.
+ *
+ * Lookups try the remembered selector first and only probe the full candidate list (in one
+ * {@link ElementProbe} round trip) when it misses, e.g. on the first run or after the markup changed.
+ * What a probe finds is stored by the caller through {@link #remember}, under the fingerprint of the
+ * page as it is after the probe.
+ *
+ * Cache file: -Dlocator.cache.file (default .cache/locator-cache.properties)
+ */
+public final class LocatorCache {
+    
+    private static final LocatorCache INSTANCE = new LocatorCache(
+            Paths.get(System.getProperty("locator.cache.file", ".cache/locator-cache.properties")));
+    
+    // Structural hash over the elements the page objects care about; text and values are ignored
+    private static final String FINGERPRINT_SCRIPT =
+            "var parts = [];"
+            + "var nodes = document.querySelectorAll('form, input, button, select, textarea, [role=button]');"
+            + "for (var i = 0; i < nodes.length; i++) {"
+            + "  var n = nodes[i];"
+            + "  parts.push(n.tagName + '|' + (n.getAttribute('type') || '') + '|' + (n.getAttribute('name') || '') + '|' + (n.id || ''));"
+            + "}"
+            + "var s = parts.join(';'), h = 5381;"
+            + "for (var j = 0; j < s.length; j++) { h = ((h << 5) + h + s.charCodeAt(j)) | 0; }"
+            + "return location.origin + location.pathname + '#' + (h >>> 0).toString(16);";
+    
+    private final Path file;
+    private final Map<String, String> selectors = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong staleEntries = new AtomicLong();
+    private volatile boolean loaded;
+    private volatile boolean dirty;
+    
+    private LocatorCache(Path file) {
+        this.file = file;
+    }
+    
+    public static LocatorCache getInstance() {
+        return INSTANCE;
+    }
+    
+    public static final class Resolution {
+        
+        private final String selector;
+        private final List<WebElement> elements;
+        private final boolean cacheHit;
+        
+        Resolution(String selector, List<WebElement> elements, boolean cacheHit) {
+            this.selector = selector;
+            this.elements = elements;
+            this.cacheHit = cacheHit;
+        }
+        
+        public String getSelector() {
+            return selector;
+        }
+        
+        public List<WebElement> getElements() {
+            return elements;
+        }
+        
+        public boolean isCacheHit() {
+            return cacheHit;
+        }
+    }
+    
+    public String fingerprint(WebDriver driver) {
+        try {
+            Object result = ((JavascriptExecutor) driver).executeScript(FINGERPRINT_SCRIPT);
+            if (result != null) {
+                return result.toString();
+            }
+        } catch (RuntimeException e) {
+            // Fall back to the URL alone
+        }
+        String url = driver.getCurrentUrl();
+        int query = url.indexOf('?');
+        return query >= 0 ? url.substring(0, query) : url;
+    }
+    
+    /**
+     * Finds the element through the remembered selector, or else the first candidate that matches.
+     * {@code missed} is a selector the caller has just seen match nothing (or null); it is not tried again.
+     */
+    public Resolution resolve(WebDriver driver, String pageFingerprint, String elementName, List<String> candidates, String missed) {
+        ensureLoaded();
+        String remembered = selectors.get(pageFingerprint + " " + elementName);
+        if (remembered != null && !remembered.equals(missed)) {
+            List<WebElement> elements = driver.findElements(By.xpath(remembered));
+            if (!elements.isEmpty()) {
+                hits.incrementAndGet();
+                return new Resolution(remembered, elements, true);
+            }
+        }
+        
+        // Evaluate every remaining candidate in one round trip and keep the first that matched
+        List<String> remaining = new ArrayList<>(candidates);
+        remaining.remove(remembered);
+        remaining.remove(missed);
+        for (ElementProbe.Result result : ElementProbe.probe(driver, remaining)) {
+            if (!result.isEmpty()) {
+                // Only counted once something matched: a wait polling for an element that has not rendered
+                // yet is neither a miss nor a sign that the remembered selector went stale
+                if (remembered != null) {
+                    staleEntries.incrementAndGet();
+                }
+                misses.incrementAndGet();
+                List<WebElement> elements = new ArrayList<>(result.getMatches().size());
+                result.getMatches().forEach(match -> elements.add(match.getElement()));
+                return new Resolution(result.getSelector(), elements, false);
+            }
+        }
+        return new Resolution(null, Collections.emptyList(), false);
+    }
+    
+    public void remember(String pageFingerprint, String elementName, String selector) {
+        ensureLoaded();
+        if (!selector.equals(selectors.put(pageFingerprint + " " + elementName, selector))) {
+            dirty = true;
+        }
+    }
+    
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            if (Files.isRegularFile(file)) {
+                Properties properties = new Properties();
+                try (InputStream in = Files.newInputStream(file)) {
+                    properties.load(in);
+                    properties.stringPropertyNames().forEach(name -> selectors.put(name, properties.getProperty(name)));
+                } catch (IOException e) {
+                    TestLog.warn("Could not read locator cache " + file + ": " + e.getMessage());
+                }
+            }
+            loaded = true;
+        }
+    }
+    
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.putAll(selectors);
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (OutputStream out = Files.newOutputStream(file)) {
+                properties.store(out, "Learned locator candidates, keyed by page fingerprint and element");
+            }
+            dirty = false;
+        } catch (IOException e) {
+            TestLog.warn("Could not write locator cache " + file + ": " + e.getMessage());
+        }
+    }
+    
+    public long getHitCount() {
+        return hits.get();
+    }
+    
+    public long getMissCount() {
+        return misses.get();
+    }
+    
+    public String describe() {
+        long total = hits.get() + misses.get();
+        return String.format("=== Locator Cache ===%n"
+                        + "Lookups: %d (hits: %d, misses: %d, stale entries: %d)%n"
+                        + "Hit ratio: %.2f%n"
+                        + "Entries: %d (%s)",
+                total, hits.get(), misses.get(), staleEntries.get(),
+                total == 0 ? 0.0 : (double) hits.get() / total, selectors.size(), file);
+    }
+}
@@ -0,0 +1,17 @@
+package com.janitri.pages;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * XPath candidates for a page element, in order of preference. Fields carrying this annotation are
+ * located through the {@link LocatorCache}, which remembers which candidate matched on a given page.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface LocatorCandidates {
+    
+    String[] value();
+}
@@ -1,62 +1,121 @@
 package com.janitri.pages;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.FindBy;
 import org.openqa.selenium.support.PageFactory;
 import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
+
+import com.janitri.utils.TestLog;
+import com.janitri.waits.Conditions;
+import com.janitri.waits.SmartWait;
 
 public class LoginPage {
     
+    private static final Duration ELEMENT_TIMEOUT = Duration.ofSeconds(20);
+    private static final Duration FEEDBACK_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration UI_UPDATE_TIMEOUT = Duration.ofSeconds(2);
+    private static final By ALT_ERROR_LOCATOR = By.xpath("//div[contains(text(), 'Invalid') or contains(text(), 'Error') or contains(text(), 'incorrect') or contains(text(), 'failed')]");
+    
     private WebDriver driver;
-    private WebDriverWait wait;
+    private SmartWait wait;
     
-    // Page Elements using @FindBy annotations with multiple fallback locators
-    @FindBy(xpath = "//input[@id='userId' or @name='userId' or @name='username' or @name='email' or @placeholder='User ID' or @placeholder='Username' or @placeholder='Email' or contains(@class, 'user') or contains(@class, 'email') or contains(@class, 'login')]")
+    // Page Elements with fallback locators, most specific first; the LocatorCache remembers which one matched
+    @LocatorCandidates({
+        "//input[@id='userId']",
+        "//input[@name='userId']",
+        "//input[@name='username']",
+        "//input[@name='email']",
+        "//input[@placeholder='User ID']",
+        "//input[@placeholder='Username']",
+        "//input[@placeholder='Email']",
+        "//input[contains(@class, 'user')]",
+        "//input[contains(@class, 'email')]",
+        "//input[contains(@class, 'login')]"
+    })
     private WebElement userIdInput;
     
-    @FindBy(xpath = "//input[@id='password' or @name='password' or @type='password' or @placeholder='Password' or contains(@class, 'password')]")
+    @LocatorCandidates({
+        "//input[@id='password']",
+        "//input[@name='password']",
+        "//input[@type='password']",
+        "//input[@placeholder='Password']",
+        "//input[contains(@class, 'password')]"
+    })
     private WebElement passwordInput;
     
-    @FindBy(xpath = "//button[@type='submit'] | //button[contains(text(), 'Login')] | //button[contains(text(), 'Sign In')] | //input[@type='submit'] | //button[contains(@class, 'login')] | //button[contains(@class, 'submit')] | //*[@role='button' and (contains(text(), 'Login') or contains(text(), 'Sign'))]")
+    @LocatorCandidates({
+        "//button[@type='submit']",
+        "//button[contains(text(), 'Login')]",
+        "//button[contains(text(), 'Sign In')]",
+        "//input[@type='submit']",
+        "//button[contains(@class, 'login')]",
+        "//button[contains(@class, 'submit')]",
+        "//*[@role='button' and (contains(text(), 'Login') or contains(text(), 'Sign'))]"
+    })
     private WebElement loginButton;
     
-    @FindBy(xpath = "//span[contains(@class, 'eye')] | //i[contains(@class, 'eye')] | //button[contains(@class, 'password-toggle')] | //*[@data-testid='password-toggle'] | //*[contains(@class, 'toggle')] | //*[contains(@onclick, 'password')] | //span[contains(@class, 'show')] | //span[contains(@class, 'hide')]")
+    @LocatorCandidates({
+        "//*[@data-testid='password-toggle']",
+        "//button[contains(@class, 'password-toggle')]",
+        "//span[contains(@class, 'eye')]",
+        "//i[contains(@class, 'eye')]",
+        "//*[contains(@onclick, 'password')]",
+        "//span[contains(@class, 'show')]",
+        "//span[contains(@class, 'hide')]",
+        "//*[contains(@class, 'toggle')]"
+    })
     private WebElement passwordToggleIcon;
     
-    @FindBy(xpath = "//div[contains(@class, 'error') or contains(@class, 'alert')] | //span[contains(@class, 'error')] | //*[contains(text(), 'Invalid') or contains(text(), 'Error') or contains(text(), 'incorrect')]")
+    @LocatorCandidates({
+        "//div[contains(@class, 'error') or contains(@class, 'alert')]",
+        "//span[contains(@class, 'error')]",
+        "//*[contains(text(), 'Invalid') or contains(text(), 'Error') or contains(text(), 'incorrect')]"
+    })
     private WebElement errorMessage;
     
-    @FindBy(xpath = "//h1 | //h2 | //title | //*[contains(@class, 'title') or contains(@class, 'heading')]")
+    @LocatorCandidates({
+        "//h1",
+        "//h2",
+        "//*[contains(@class, 'title') or contains(@class, 'heading')]",
+        "//title"
+    })
     private WebElement pageTitle;
     
     // Constructor
     public LoginPage(WebDriver driver) {
         this.driver = driver;
-        this.wait = new WebDriverWait(driver, Duration.ofSeconds(20));
-        PageFactory.initElements(driver, this);
-        
-        // Debug: Print page source length and URL
-        System.out.println("=== LoginPage Debug Info ===");
-        System.out.println("Current URL: " + driver.getCurrentUrl());
-        System.out.println("Page Title: " + driver.getTitle());
-        System.out.println("Page Source Length: " + driver.getPageSource().length());
+        this.wait = new SmartWait(driver, ELEMENT_TIMEOUT);
+        CachedLocatorFactory locatorFactory = new CachedLocatorFactory(driver);
+        PageFactory.initElements(locatorFactory.decorator(), this);
         
-        // Try to find elements with different strategies
-        findElementsWithMultipleStrategies();
+        // Diagnostics cost remote calls (page source, element sweep), so they only run at debug level;
+        // otherwise elements are resolved lazily on first use
+        if (TestLog.isDebugEnabled()) {
+            TestLog.debug(() -> "=== LoginPage Debug Info ===");
+            TestLog.debug(() -> "Current URL: " + driver.getCurrentUrl());
+            TestLog.debug(() -> "Page Title: " + driver.getTitle());
+            TestLog.debug(() -> "Page Source Length: " + driver.getPageSource().length());
+            
+            // Full strategy sweep only when the remembered locators no longer match this page
+            if (!locatorFactory.resolveFromCache("userIdInput", "passwordInput", "loginButton")) {
+                findElementsWithMultipleStrategies();
+            }
+        }
     }
     
     private void findElementsWithMultipleStrategies() {
-        System.out.println("=== Element Detection ===");
+        TestLog.debug(() -> "=== Element Detection ===");
         
         // Try to find user input with various selectors
-        String[] userSelectors = {
+        List<String> userSelectors = Arrays.asList(
             "//input[@type='text']",
-            "//input[@type='email']", 
+            "//input[@type='email']",
             "//input[contains(@placeholder, 'user')]",
             "//input[contains(@placeholder, 'email')]",
             "//input[contains(@name, 'user')]",
@@ -64,65 +123,52 @@ public class LoginPage {
             "//input[contains(@id, 'user')]",
             "//input[contains(@id, 'email')]",
             "//input[1]"
-        };
-        
-        for (String selector : userSelectors) {
-            try {
-                var elements = driver.findElements(By.xpath(selector));
-                if (!elements.isEmpty()) {
-                    System.out.println("Found " + elements.size() + " elements with selector: " + selector);
-                    for (int i = 0; i < elements.size(); i++) {
-                        var elem = elements.get(i);
-                        System.out.println("  Element " + i + ": tag=" + elem.getTagName() + 
-                                         ", type=" + elem.getAttribute("type") + 
-                                         ", name=" + elem.getAttribute("name") + 
-                                         ", id=" + elem.getAttribute("id") +
-                                         ", placeholder=" + elem.getAttribute("placeholder"));
-                    }
-                }
-            } catch (Exception e) {
-                // Continue to next selector
-            }
-        }
+        );
         
         // Try to find password input
-        String[] passwordSelectors = {
+        List<String> passwordSelectors = Arrays.asList(
             "//input[@type='password']",
             "//input[contains(@placeholder, 'password')]",
             "//input[contains(@name, 'password')]",
             "//input[contains(@id, 'password')]"
-        };
-        
-        for (String selector : passwordSelectors) {
-            try {
-                var elements = driver.findElements(By.xpath(selector));
-                if (!elements.isEmpty()) {
-                    System.out.println("Found password elements with selector: " + selector + " (count: " + elements.size() + ")");
-                }
-            } catch (Exception e) {
-                // Continue to next selector
-            }
-        }
+        );
         
         // Try to find any buttons
-        String[] buttonSelectors = {
+        List<String> buttonSelectors = Arrays.asList(
             "//button",
             "//input[@type='submit']",
             "//input[@type='button']",
             "//*[@role='button']"
-        };
+        );
         
-        for (String selector : buttonSelectors) {
-            try {
-                var elements = driver.findElements(By.xpath(selector));
-                if (!elements.isEmpty()) {
-                    System.out.println("Found buttons with selector: " + selector + " (count: " + elements.size() + ")");
-                    for (var elem : elements) {
-                        System.out.println("  Button text: '" + elem.getText() + "', type: " + elem.getAttribute("type"));
-                    }
+        // All selectors, attributes and texts come back in a single round trip
+        List<String> allSelectors = new ArrayList<>(userSelectors);
+        allSelectors.addAll(passwordSelectors);
+        allSelectors.addAll(buttonSelectors);
+        
+        for (ElementProbe.Result result : ElementProbe.probe(driver, allSelectors)) {
+            if (result.isEmpty()) {
+                continue;
+            }
+            String selector = result.getSelector();
+            if (userSelectors.contains(selector)) {
+                TestLog.debug(() -> "Found " + result.getCount() + " elements with selector: " + selector);
+                for (int i = 0; i < result.getMatches().size(); i++) {
+                    int index = i;
+                    var elem = result.getMatches().get(i);
+                    TestLog.debug(() -> "  Element " + index + ": tag=" + elem.getTag() +
+                                     ", type=" + elem.getType() +
+                                     ", name=" + elem.getName() +
+                                     ", id=" + elem.getId() +
+                                     ", placeholder=" + elem.getPlaceholder());
+                }
+            } else if (passwordSelectors.contains(selector)) {
+                TestLog.debug(() -> "Found password elements with selector: " + selector + " (count: " + result.getCount() + ")");
+            } else {
+                TestLog.debug(() -> "Found buttons with selector: " + selector + " (count: " + result.getCount() + ")");
+                for (var elem : result.getMatches()) {
+                    TestLog.debug(() -> "  Button text: '" + elem.getText() + "', type: " + elem.getType());
                 }
-            } catch (Exception e) {
-                // Continue to next selector
             }
         }
     }
@@ -145,12 +191,35 @@ public class LoginPage {
         loginButton.click();
     }
     
+    // Clicks Login and waits for the app to respond: either feedback appears or it navigates away
+    public boolean submitAndWaitForResponse() {
+        String urlBeforeSubmit = driver.getCurrentUrl();
+        clickLoginButton();
+        try {
+            wait.withTimeout(FEEDBACK_TIMEOUT).until(ExpectedConditions.or(
+                ExpectedConditions.visibilityOf(errorMessage),
+                ExpectedConditions.presenceOfElementLocated(ALT_ERROR_LOCATOR),
+                Conditions.urlChangesFrom(urlBeforeSubmit)));
+            return true;
+        } catch (Exception e) {
+            // No visible response yet; callers report what is there
+            return false;
+        }
+    }
+    
+    // Fills in both fields and submits; false when the app gave no visible response in time
+    public boolean login(String userId, String password) {
+        enterUserId(userId);
+        enterPassword(password);
+        return submitAndWaitForResponse();
+    }
+    
     public void clickPasswordToggle() {
         try {
             wait.until(ExpectedConditions.elementToBeClickable(passwordToggleIcon));
             passwordToggleIcon.click();
         } catch (Exception e) {
-            System.out.println("Password toggle not found or not clickable");
+            TestLog.info("Password toggle not found or not clickable");
         }
     }
     
@@ -171,23 +240,28 @@ public class LoginPage {
     
     public String getErrorMessage() {
         try {
-            wait.until(ExpectedConditions.visibilityOf(errorMessage));
-            return errorMessage.getText();
+            // Wait once for either error presentation instead of paying two full timeouts in turn
+            wait.withTimeout(FEEDBACK_TIMEOUT).until(ExpectedConditions.or(
+                ExpectedConditions.visibilityOf(errorMessage),
+                ExpectedConditions.presenceOfElementLocated(ALT_ERROR_LOCATOR)));
         } catch (Exception e) {
-            // Try alternative error message selectors
-            try {
-                WebElement altError = wait.until(ExpectedConditions.presenceOfElementLocated(
-                    By.xpath("//div[contains(text(), 'Invalid') or contains(text(), 'Error') or contains(text(), 'incorrect') or contains(text(), 'failed')]")));
-                return altError.getText();
-            } catch (Exception ex) {
-                return "No error message found";
+            return "No error message found";
+        }
+        
+        try {
+            if (errorMessage.isDisplayed()) {
+                return errorMessage.getText();
             }
+        } catch (Exception e) {
+            // Fall through to the alternative selector
         }
+        var altErrors = driver.findElements(ALT_ERROR_LOCATOR);
+        return altErrors.isEmpty() ? "No error message found" : altErrors.get(0).getText();
     }
     
     public boolean isErrorMessageDisplayed() {
         try {
-            wait.until(ExpectedConditions.visibilityOf(errorMessage));
+            wait.withTimeout(FEEDBACK_TIMEOUT).until(ExpectedConditions.visibilityOf(errorMessage));
             return errorMessage.isDisplayed();
         } catch (Exception e) {
             return false;
@@ -208,10 +282,10 @@ public class LoginPage {
             wait.until(ExpectedConditions.visibilityOf(userIdInput));
             return userIdInput.isDisplayed();
         } catch (Exception e) {
-            System.out.println("PageFactory userIdInput not found, trying alternative selectors...");
+            TestLog.info("PageFactory userIdInput not found, trying alternative selectors...");
             
             // Try alternative selectors
-            String[] selectors = {
+            List<String> selectors = Arrays.asList(
                 "//input[@type='text']",
                 "//input[@type='email']",
                 "//input[contains(@placeholder, 'user') or contains(@placeholder, 'User')]",
@@ -219,21 +293,17 @@ public class LoginPage {
                 "//input[contains(@name, 'user') or contains(@name, 'email')]",
                 "//input[contains(@id, 'user') or contains(@id, 'email')]",
                 "//input[1]"  // First input on page
-            };
+            );
             
-            for (String selector : selectors) {
-                try {
-                    WebElement element = wait.until(ExpectedConditions.presenceOfElementLocated(By.xpath(selector)));
-                    if (element.isDisplayed()) {
-                        System.out.println("Found user input with selector: " + selector);
-                        return true;
-                    }
-                } catch (Exception ex) {
-                    // Continue to next selector
+            // The page has had the full wait already, so all fallbacks are checked in one probe
+            for (ElementProbe.Result result : ElementProbe.probe(driver, selectors)) {
+                if (result.firstVisible() != null) {
+                    TestLog.info("Found user input with selector: " + result.getSelector());
+                    return true;
                 }
             }
             
-            System.out.println("No user input field found with any selector");
+            TestLog.info("No user input field found with any selector");
             return false;
         }
     }
@@ -257,22 +327,24 @@ public class LoginPage {
     }
     
     public void clearAllFields() {
+        wait.until(ExpectedConditions.elementToBeClickable(userIdInput));
         userIdInput.clear();
+        wait.until(ExpectedConditions.elementToBeClickable(passwordInput));
         passwordInput.clear();
     }
     
     // Test Methods as required in the assignment
     public boolean testLoginButtonDisabledWhenFieldsAreEmpty() {
         clearAllFields();
-        // Wait a moment for UI to update
+        // Give the UI a moment to react to the cleared fields
         try {
-            Thread.sleep(500);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+            wait.withTimeout(UI_UPDATE_TIMEOUT).until(Conditions.enabledStateToBe(loginButton, false));
+        } catch (Exception e) {
+            // Button stayed enabled; reported below
         }
         
         boolean isDisabled = !isLoginButtonEnabled();
-        System.out.println("Login button disabled when fields are empty: " + isDisabled);
+        TestLog.info("Login button disabled when fields are empty: " + isDisabled);
         return isDisabled;
     }
     
@@ -281,34 +353,28 @@ public class LoginPage {
         
         // Check initial state (should be masked)
         boolean initiallyMasked = isPasswordMasked();
-        System.out.println("Password initially masked: " + initiallyMasked);
+        TestLog.info("Password initially masked: " + initiallyMasked);
         
         // Click toggle if available
         if (isPasswordToggleDisplayed()) {
+            String typeBeforeToggle = getPasswordInputType();
             clickPasswordToggle();
-            try {
-                Thread.sleep(500); // Wait for toggle to take effect
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+            waitForPasswordTypeChange(typeBeforeToggle);
             
             boolean afterToggle = isPasswordMasked();
-            System.out.println("Password masked after toggle: " + afterToggle);
+            TestLog.info("Password masked after toggle: " + afterToggle);
             
             // Toggle back
+            typeBeforeToggle = getPasswordInputType();
             clickPasswordToggle();
-            try {
-                Thread.sleep(500);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+            waitForPasswordTypeChange(typeBeforeToggle);
             
             boolean afterSecondToggle = isPasswordMasked();
-            System.out.println("Password masked after second toggle: " + afterSecondToggle);
+            TestLog.info("Password masked after second toggle: " + afterSecondToggle);
             
             return initiallyMasked && !afterToggle && afterSecondToggle;
         } else {
-            System.out.println("Password toggle not found - checking basic masking functionality");
+            TestLog.info("Password toggle not found - checking basic masking functionality");
             return initiallyMasked;
         }
     }
@@ -317,17 +383,18 @@ public class LoginPage {
         // Test with invalid credentials
         enterUserId("invalidUser123");
         enterPassword("invalidPassword123");
-        clickLoginButton();
-        
-        // Wait for potential error message
-        try {
-            Thread.sleep(2000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+        submitAndWaitForResponse();
         
         String errorMsg = getErrorMessage();
-        System.out.println("Error message displayed: " + errorMsg);
+        TestLog.info("Error message displayed: " + errorMsg);
         return errorMsg;
     }
+    
+    private void waitForPasswordTypeChange(String previousType) {
+        try {
+            wait.withTimeout(UI_UPDATE_TIMEOUT).until(Conditions.attributeChangesFrom(passwordInput, "type", previousType));
+        } catch (Exception e) {
+            // Toggle had no effect; the masking check reports it
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,251 @@
+package com.janitri.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import com.janitri.utils.VirtualThreads;
+
+/**
+ * In-process stand-in for the Janitri dashboard login, serving a fixture copy of the login page
+ * from {@code src/test/resources/fixtures} so runs are offline, fast and deterministic.
+ *
+ *   GET  /, /login    login page: user ID and password inputs, password toggle, login button
+ *                     disabled until both fields are filled, error message on rejected login
+ *   POST /api/login   form-encoded userId/password; 200 with a session cookie for the configured
+ *                     user, 401 "Invalid credentials" otherwise, 400 if a field is blank
+ *   GET  /dashboard   requires the session cookie, otherwise redirects to /login
+ *
+ * Every request is delayed by the configured latency plus a random jitter in [0, jitter]; the
+ * random sequence is seeded so timings are reproducible across runs.
+ *
+ * Configuration (system properties):
+ *   standin.latency.ms / standin.jitter.ms / standin.seed - response delay (default 0 / 0 / 42)
+ *   standin.user / standin.password                       - accepted credentials
+ *   standin.backlog                                       - pending connection queue (default 1024)
+ *
+ * The page is served from {@code localhost}; its analytics script is requested from
+ * {@code 127.0.0.1} on the same port so the browser treats it as a third-party origin.
+ */
+public class StandInServer {
+    
+    public static final String DEFAULT_USER = "demo.user";
+    public static final String DEFAULT_PASSWORD = "Demo@1234";
+    public static final String SESSION_COOKIE = "janitri_session";
+    
+    private static final String FIXTURES = "/fixtures/";
+    private static final int FONT_BYTES = 48 * 1024;
+    private static final long THIRD_PARTY_DELAY_MILLIS = 300;
+    
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Set<String> sessions = ConcurrentHashMap.newKeySet();
+    private final Random random = new Random(Long.getLong("standin.seed", 42));
+    private final String validUser = System.getProperty("standin.user", DEFAULT_USER);
+    private final String validPassword = System.getProperty("standin.password", DEFAULT_PASSWORD);
+    private volatile long latencyMillis = Long.getLong("standin.latency.ms", 0);
+    private volatile long jitterMillis = Long.getLong("standin.jitter.ms", 0);
+    
+    private StandInServer(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+    
+    // Port 0 picks a free port
+    public static StandInServer start(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", port), Integer.getInteger("standin.backlog", 1024));
+        // Simulated latency blocks the handler thread, so each request gets its own (virtual where available)
+        ExecutorService executor = VirtualThreads.newPerTaskExecutor("stand-in-server");
+        StandInServer standIn = new StandInServer(server, executor);
+        server.createContext("/", standIn::handlePage);
+        server.createContext("/assets/", standIn::handleAsset);
+        server.createContext("/tp/", standIn::handleThirdParty);
+        server.createContext("/api/login", standIn::handleLogin);
+        server.createContext("/dashboard", standIn::handleDashboard);
+        server.setExecutor(executor);
+        server.start();
+        return standIn;
+    }
+    
+    public StandInServer withLatency(long latency, long jitter) {
+        this.latencyMillis = Math.max(0, latency);
+        this.jitterMillis = Math.max(0, jitter);
+        return this;
+    }
+    
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+    
+    public String getBaseUrl() {
+        return "http://localhost:" + getPort() + "/";
+    }
+    
+    public String getThirdPartyOrigin() {
+        return "http://127.0.0.1:" + getPort();
+    }
+    
+    public String getValidUser() {
+        return validUser;
+    }
+    
+    public String getValidPassword() {
+        return validPassword;
+    }
+    
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+    
+    private void handlePage(HttpExchange exchange) throws IOException {
+        simulateLatency();
+        String path = exchange.getRequestURI().getPath();
+        if (!path.equals("/") && !path.equals("/login")) {
+            send(exchange, 404, "text/plain", "Not found");
+            return;
+        }
+        String page = new String(readFixture("login.html"), StandardCharsets.UTF_8)
+                .replace("{{THIRD_PARTY_ORIGIN}}", getThirdPartyOrigin());
+        send(exchange, 200, "text/html; charset=utf-8", page);
+    }
+    
+    private void handleAsset(HttpExchange exchange) throws IOException {
+        simulateLatency();
+        String path = exchange.getRequestURI().getPath();
+        if (path.startsWith("/assets/fonts/")) {
+            // Stand-in web font of realistic size; the browser only needs to download it
+            send(exchange, 200, "font/woff2", new byte[FONT_BYTES]);
+            return;
+        }
+        byte[] body = readFixture(path.substring(1));
+        if (body == null) {
+            send(exchange, 404, "text/plain", "Not found");
+        } else {
+            send(exchange, 200, path.endsWith(".svg") ? "image/svg+xml" : "application/octet-stream", body);
+        }
+    }
+    
+    private void handleThirdParty(HttpExchange exchange) throws IOException {
+        pause(THIRD_PARTY_DELAY_MILLIS);
+        send(exchange, 200, "application/javascript", "window.__analyticsLoaded = true;");
+    }
+    
+    private void handleLogin(HttpExchange exchange) throws IOException {
+        simulateLatency();
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            send(exchange, 405, "text/plain", "Method not allowed");
+            return;
+        }
+        Map<String, String> form;
+        try (InputStream in = exchange.getRequestBody()) {
+            form = parseForm(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        String userId = form.getOrDefault("userId", "").trim();
+        String password = form.getOrDefault("password", "");
+        
+        if (userId.isEmpty() || password.isEmpty()) {
+            send(exchange, 400, "application/json", "{\"message\":\"User ID and password are required\"}");
+        } else if (validUser.equals(userId) && validPassword.equals(password)) {
+            String session = UUID.randomUUID().toString();
+            sessions.add(session);
+            exchange.getResponseHeaders().add("Set-Cookie", SESSION_COOKIE + "=" + session + "; Path=/; HttpOnly");
+            send(exchange, 200, "application/json", "{\"redirect\":\"/dashboard\"}");
+        } else {
+            send(exchange, 401, "application/json", "{\"message\":\"Invalid credentials\"}");
+        }
+    }
+    
+    private void handleDashboard(HttpExchange exchange) throws IOException {
+        simulateLatency();
+        if (!sessions.contains(sessionCookie(exchange))) {
+            exchange.getResponseHeaders().set("Location", "/login");
+            send(exchange, 302, "text/plain", "");
+            return;
+        }
+        send(exchange, 200, "text/html; charset=utf-8",
+                "<!DOCTYPE html><html><head><title>Janitri Dashboard</title></head>"
+                + "<body><h1 class=\"dashboard-title\">Dashboard</h1></body></html>");
+    }
+    
+    private static String sessionCookie(HttpExchange exchange) {
+        for (String header : exchange.getRequestHeaders().getOrDefault("Cookie", Collections.emptyList())) {
+            for (String cookie : header.split(";")) {
+                String[] pair = cookie.trim().split("=", 2);
+                if (pair.length == 2 && pair[0].equals(SESSION_COOKIE)) {
+                    return pair[1];
+                }
+            }
+        }
+        return "";
+    }
+    
+    private static Map<String, String> parseForm(String body) {
+        Map<String, String> form = new HashMap<>();
+        for (String pair : body.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            String[] keyValue = pair.split("=", 2);
+            form.put(URLDecoder.decode(keyValue[0], StandardCharsets.UTF_8),
+                    keyValue.length > 1 ? URLDecoder.decode(keyValue[1], StandardCharsets.UTF_8) : "");
+        }
+        return form;
+    }
+    
+    private void simulateLatency() {
+        long delay = latencyMillis;
+        if (jitterMillis > 0) {
+            synchronized (random) {
+                delay += (long) (random.nextDouble() * jitterMillis);
+            }
+        }
+        if (delay > 0) {
+            pause(delay);
+        }
+    }
+    
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static byte[] readFixture(String name) throws IOException {
+        if (name.contains("..")) {
+            return null;
+        }
+        try (InputStream in = StandInServer.class.getResourceAsStream(FIXTURES + name)) {
+            return in == null ? null : in.readAllBytes();
+        }
+    }
+    
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        send(exchange, status, contentType, body.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.janitri.session;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.json.Json;
+
+import com.janitri.base.TargetEnvironment;
+import com.janitri.pages.LoginPage;
+import com.janitri.utils.TestLog;
+import com.janitri.waits.Conditions;
+import com.janitri.waits.SmartWait;
+
+/**
+ * Logs in through the UI once per user and environment, then hands the authenticated state to
+ * every later test as a {@link SessionSnapshot} instead of driving the login form again.
+ *
+ * Snapshots are keyed by {@code user@target.env} and kept for a TTL. An expired snapshot, one taken
+ * on another origin, or one the server rejects on restore is replaced by a fresh UI login; tests
+ * asking for the same user meanwhile wait for that login and restore its result.
+ *
+ * Snapshots live in memory for the run unless persisting is turned on. The file then holds every
+ * cached user's cookies, HttpOnly session tokens included, and local and session storage in
+ * plaintext: anyone who can read it can act as those users until the sessions expire server-side.
+ * It is created readable by the owner only where the file system supports that.
+ *
+ *   session.cache.ttl.minutes - how long a snapshot is reused (default 30)
+ *   session.cache.persist     - true keeps snapshots between runs in session.cache.file (default false)
+ *   session.cache.file        - where they are kept (default .cache/session-snapshots.json)
+ */
+public final class SessionCache {
+    
+    private static final SessionCache INSTANCE = new SessionCache(
+            Paths.get(System.getProperty("session.cache.file", ".cache/session-snapshots.json")),
+            Boolean.parseBoolean(System.getProperty("session.cache.persist", "false")),
+            Duration.ofMinutes(Long.getLong("session.cache.ttl.minutes", 30)));
+    private static final Duration PAGE_READY_TIMEOUT = Duration.ofSeconds(30);
+    
+    private final Path file;
+    private final boolean persist;
+    private final long ttlMillis;
+    private final Map<String, SessionSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final Map<String, Object> loginLocks = new ConcurrentHashMap<>();
+    private final AtomicLong restores = new AtomicLong();
+    private final AtomicLong uiLogins = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile boolean loaded;
+    
+    private SessionCache(Path file, boolean persist, Duration ttl) {
+        this.file = file;
+        this.persist = persist;
+        this.ttlMillis = ttl.toMillis();
+    }
+    
+    public static SessionCache getInstance() {
+        return INSTANCE;
+    }
+    
+    public static String key(String user) {
+        return user + "@" + TargetEnvironment.name();
+    }
+    
+    /**
+     * Leaves the driver logged in as the user, on the page the login lands on. Restores a cached
+     * snapshot when there is a usable one, otherwise logs in through the form and caches the result.
+     *
+     * @return true if a snapshot was restored, false if this call logged in through the form
+     * @throws IllegalStateException if the UI login itself does not get past the login page
+     */
+    public boolean loginAs(WebDriver driver, String user, String password) {
+        ensureLoaded();
+        String key = key(user);
+        SessionSnapshot seen = snapshots.get(key);
+        if (tryRestore(driver, key, seen)) {
+            return true;
+        }
+        
+        synchronized (loginLocks.computeIfAbsent(key, k -> new Object())) {
+            // Another test may have logged in while this one was waiting
+            SessionSnapshot current = snapshots.get(key);
+            if (current != seen && tryRestore(driver, key, current)) {
+                return true;
+            }
+            long start = System.nanoTime();
+            new LoginPage(driver).login(user, password);
+            new SmartWait(driver, PAGE_READY_TIMEOUT).until(Conditions.documentReady());
+            if (SessionSnapshot.isOnLoginForm(driver)) {
+                throw new IllegalStateException("Login as " + user + " did not get past the login page");
+            }
+            SessionSnapshot snapshot = SessionSnapshot.capture(driver);
+            snapshots.put(key, snapshot);
+            uiLogins.incrementAndGet();
+            TestLog.info("Logged in as " + key + " through the UI in " + (System.nanoTime() - start) / 1_000_000
+                    + " ms; cached session state for later tests");
+            save();
+            return false;
+        }
+    }
+    
+    private boolean tryRestore(WebDriver driver, String key, SessionSnapshot snapshot) {
+        if (snapshot == null) {
+            return false;
+        }
+        if (snapshot.isExpired(ttlMillis, System.currentTimeMillis())
+                || !snapshot.getOrigin().equals(SessionSnapshot.origin(TargetEnvironment.baseUrl()))) {
+            // Only count it once, not for every test that saw it before the refresh
+            if (snapshots.remove(key, snapshot)) {
+                expired.incrementAndGet();
+                TestLog.info("Session snapshot for " + key + " expired or was taken on another origin, logging in again");
+            }
+            return false;
+        }
+        long start = System.nanoTime();
+        if (snapshot.restore(driver)) {
+            restores.incrementAndGet();
+            TestLog.debug(() -> "Restored session " + key + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return true;
+        }
+        if (snapshots.remove(key, snapshot)) {
+            rejected.incrementAndGet();
+            TestLog.info("Session snapshot for " + key + " was rejected by the server, logging in again");
+        }
+        return false;
+    }
+    
+    // Drops the user's snapshot, e.g. after a test logged out or changed the password
+    public void invalidate(String user) {
+        snapshots.remove(key(user));
+        save();
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            if (persist && Files.isRegularFile(file)) {
+                try {
+                    String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+                    Map<String, Object> stored = new Json().toType(content, Json.MAP_TYPE);
+                    stored.forEach((key, json) -> snapshots.put(key, SessionSnapshot.fromJson((Map<String, Object>) json)));
+                } catch (IOException | RuntimeException e) {
+                    TestLog.warn("Could not read session snapshots " + file + ": " + e.getMessage());
+                }
+            }
+            loaded = true;
+        }
+    }
+    
+    private synchronized void save() {
+        if (!persist) {
+            return;
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        snapshots.forEach((key, snapshot) -> json.put(key, snapshot.toJson()));
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            if (!Files.exists(file) && file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+            }
+            Files.write(file, new Json().toJson(json).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            TestLog.warn("Could not write session snapshots " + file + ": " + e.getMessage());
+        }
+    }
+    
+    public long getRestoreCount() {
+        return restores.get();
+    }
+    
+    public long getLoginCount() {
+        return uiLogins.get();
+    }
+    
+    public String describe() {
+        return String.format("=== Session Cache ===%n"
+                        + "Restored sessions: %d, UI logins: %d (expired snapshots: %d, rejected: %d)%n"
+                        + "TTL: %d min (%s)",
+                restores.get(), uiLogins.get(), expired.get(), rejected.get(),
+                ttlMillis / 60_000, persist ? file : "in memory");
+    }
+}
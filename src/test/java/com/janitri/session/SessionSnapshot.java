@@ -0,0 +1,199 @@
+package com.janitri.session;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * The authenticated state of a browser after logging in: its cookies (HttpOnly ones included, as
+ * WebDriver sees them), the origin's localStorage and the tab's sessionStorage, and the page the
+ * login landed on.
+ *
+ * Restoring replays that state into another session on the same origin and opens the landing page,
+ * which is where an expired or revoked session shows itself by redirecting back to the login form.
+ */
+public final class SessionSnapshot {
+    
+    private static final String READ_STORAGE_SCRIPT =
+            "function read(storage) {"
+            + "  var entries = {};"
+            + "  try { for (var i = 0; i < storage.length; i++) { var k = storage.key(i); entries[k] = storage.getItem(k); } } catch (e) {}"
+            + "  return entries;"
+            + "}"
+            + "return { local: read(window.localStorage), session: read(window.sessionStorage) };";
+    
+    private static final String WRITE_STORAGE_SCRIPT =
+            "var local = arguments[0], session = arguments[1];"
+            + "window.localStorage.clear(); window.sessionStorage.clear();"
+            + "for (var k in local) { window.localStorage.setItem(k, local[k]); }"
+            + "for (var s in session) { window.sessionStorage.setItem(s, session[s]); }";
+    
+    private final String origin;
+    private final String landingUrl;
+    private final long capturedAt;
+    private final List<Cookie> cookies;
+    private final Map<String, String> localStorage;
+    private final Map<String, String> sessionStorage;
+    
+    private SessionSnapshot(String origin, String landingUrl, long capturedAt, List<Cookie> cookies,
+                            Map<String, String> localStorage, Map<String, String> sessionStorage) {
+        this.origin = origin;
+        this.landingUrl = landingUrl;
+        this.capturedAt = capturedAt;
+        this.cookies = cookies;
+        this.localStorage = localStorage;
+        this.sessionStorage = sessionStorage;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public static SessionSnapshot capture(WebDriver driver) {
+        String landingUrl = driver.getCurrentUrl();
+        Map<String, Object> storage = (Map<String, Object>) ((JavascriptExecutor) driver).executeScript(READ_STORAGE_SCRIPT);
+        return new SessionSnapshot(origin(landingUrl), landingUrl, System.currentTimeMillis(),
+                new ArrayList<>(driver.manage().getCookies()),
+                strings((Map<String, Object>) storage.get("local")),
+                strings((Map<String, Object>) storage.get("session")));
+    }
+    
+    /**
+     * Replays the snapshot into the driver and opens the landing page. Returns false when the app
+     * sends the browser back to a login form, i.e. the server no longer accepts the session.
+     */
+    public boolean restore(WebDriver driver) {
+        // Cookies and storage can only be set for the origin the browser is on
+        if (!origin.equals(origin(driver.getCurrentUrl()))) {
+            driver.get(origin + "/");
+        }
+        String host = URI.create(origin).getHost();
+        driver.manage().deleteAllCookies();
+        for (Cookie cookie : cookies) {
+            driver.manage().addCookie(forHost(cookie, host));
+        }
+        ((JavascriptExecutor) driver).executeScript(WRITE_STORAGE_SCRIPT, localStorage, sessionStorage);
+        
+        driver.get(landingUrl);
+        return isAuthenticated(driver, landingUrl);
+    }
+    
+    // Logged in means the browser stayed on the landing page and no password field is asking to log in again
+    static boolean isAuthenticated(WebDriver driver, String expectedUrl) {
+        return stripQuery(driver.getCurrentUrl()).equals(stripQuery(expectedUrl)) && !isOnLoginForm(driver);
+    }
+    
+    static boolean isOnLoginForm(WebDriver driver) {
+        return !driver.findElements(By.cssSelector("input[type='password']")).isEmpty();
+    }
+    
+    public boolean isExpired(long ttlMillis, long now) {
+        if (now - capturedAt > ttlMillis) {
+            return true;
+        }
+        Date date = new Date(now);
+        return cookies.stream().anyMatch(cookie -> cookie.getExpiry() != null && cookie.getExpiry().before(date));
+    }
+    
+    public String getOrigin() {
+        return origin;
+    }
+    
+    public String getLandingUrl() {
+        return landingUrl;
+    }
+    
+    public long getCapturedAt() {
+        return capturedAt;
+    }
+    
+    Map<String, Object> toJson() {
+        List<Map<String, Object>> cookieJson = new ArrayList<>();
+        for (Cookie cookie : cookies) {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("name", cookie.getName());
+            json.put("value", cookie.getValue());
+            json.put("domain", cookie.getDomain());
+            json.put("path", cookie.getPath());
+            json.put("expiry", cookie.getExpiry() == null ? null : cookie.getExpiry().getTime());
+            json.put("secure", cookie.isSecure());
+            json.put("httpOnly", cookie.isHttpOnly());
+            json.put("sameSite", cookie.getSameSite());
+            cookieJson.add(json);
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("origin", origin);
+        json.put("landingUrl", landingUrl);
+        json.put("capturedAt", capturedAt);
+        json.put("cookies", cookieJson);
+        json.put("localStorage", localStorage);
+        json.put("sessionStorage", sessionStorage);
+        return json;
+    }
+    
+    @SuppressWarnings("unchecked")
+    static SessionSnapshot fromJson(Map<String, Object> json) {
+        List<Cookie> cookies = new ArrayList<>();
+        for (Map<String, Object> cookie : (List<Map<String, Object>>) json.get("cookies")) {
+            Number expiry = (Number) cookie.get("expiry");
+            cookies.add(new Cookie.Builder((String) cookie.get("name"), (String) cookie.get("value"))
+                    .domain((String) cookie.get("domain"))
+                    .path((String) cookie.get("path"))
+                    .expiresOn(expiry == null ? null : new Date(expiry.longValue()))
+                    .isSecure(Boolean.TRUE.equals(cookie.get("secure")))
+                    .isHttpOnly(Boolean.TRUE.equals(cookie.get("httpOnly")))
+                    .sameSite((String) cookie.get("sameSite"))
+                    .build());
+        }
+        return new SessionSnapshot((String) json.get("origin"), (String) json.get("landingUrl"),
+                ((Number) json.get("capturedAt")).longValue(), cookies,
+                strings((Map<String, Object>) json.get("localStorage")),
+                strings((Map<String, Object>) json.get("sessionStorage")));
+    }
+    
+    // Browsers reject an explicit Domain of "localhost" or a bare host; host-only cookies go back without one
+    private static Cookie forHost(Cookie cookie, String host) {
+        String domain = cookie.getDomain();
+        boolean hostOnly = domain == null || domain.equalsIgnoreCase(host) || !domain.contains(".");
+        return new Cookie.Builder(cookie.getName(), cookie.getValue())
+                .domain(hostOnly ? null : domain)
+                .path(cookie.getPath())
+                .expiresOn(cookie.getExpiry())
+                .isSecure(cookie.isSecure())
+                .isHttpOnly(cookie.isHttpOnly())
+                .sameSite(cookie.getSameSite())
+                .build();
+    }
+    
+    private static Map<String, String> strings(Map<String, Object> values) {
+        if (values == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> strings = new LinkedHashMap<>();
+        values.forEach((key, value) -> strings.put(key, value == null ? null : String.valueOf(value)));
+        return strings;
+    }
+    
+    static String origin(String url) {
+        URI uri = URI.create(url);
+        return uri.getScheme() + "://" + uri.getRawAuthority();
+    }
+    
+    private static String stripQuery(String url) {
+        int end = url.length();
+        for (char c : new char[] {'?', '#'}) {
+            int index = url.indexOf(c);
+            if (index >= 0) {
+                end = Math.min(end, index);
+            }
+        }
+        String path = url.substring(0, end);
+        return path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    }
+}
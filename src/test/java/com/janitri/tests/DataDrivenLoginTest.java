@@ -0,0 +1,174 @@
+package com.janitri.tests;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+import org.openqa.selenium.Alert;
+import org.openqa.selenium.NoAlertPresentException;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.janitri.base.BaseTest;
+import com.janitri.data.LoginScenario;
+import com.janitri.data.LoginScenario.Outcome;
+import com.janitri.data.TestCase;
+import com.janitri.data.TestCaseReader;
+import com.janitri.pages.LoginPage;
+import com.janitri.utils.TestLog;
+
+/**
+ * Runs every login case from the manual test case sheets that maps onto the login form, in parallel.
+ *
+ * Sheets: -Dtestcases.files, comma separated .xlsx or .csv files
+ * (default manual_test_cases.xlsx and src/test/resources/testcases/login_credentials.csv).
+ * Parallel rows are bounded by the suite's data provider thread count (-Ddataprovider.threads)
+ * and by the driver pool size.
+ */
+public class DataDrivenLoginTest extends BaseTest {
+    
+    private static final String DEFAULT_FILES = "manual_test_cases.xlsx,src/test/resources/testcases/login_credentials.csv";
+    
+    private boolean wasBuffered;
+    
+    @BeforeClass
+    public void bufferOutput() {
+        // Rows run concurrently even when the suite itself is serial
+        wasBuffered = TestLog.isBuffered();
+        TestLog.setBuffered(true);
+    }
+    
+    // Later classes in a serial run print as they go again
+    @AfterClass(alwaysRun = true)
+    public void restoreOutput() {
+        TestLog.setBuffered(wasBuffered);
+    }
+    
+    @DataProvider(name = "loginCases", parallel = true)
+    public static Iterator<Object[]> loginCases() {
+        List<Path> files = new ArrayList<>();
+        for (String file : System.getProperty("testcases.files", DEFAULT_FILES).split(",")) {
+            if (!file.isBlank()) {
+                files.add(Paths.get(file.trim()));
+            }
+        }
+        return new ScenarioIterator(files);
+    }
+    
+    @Test(dataProvider = "loginCases", description = "Login outcome for each test case row")
+    public void testLoginCase(LoginScenario scenario) {
+        TestCase testCase = scenario.getTestCase();
+        TestLog.info("\n=== " + testCase + " [" + testCase.getSource() + ", " + testCase.getPriority() + "] ===");
+        if (!scenario.hasCredentials()) {
+            throw new SkipException("Needs valid credentials for " + BASE_URL + "; set -Dlogin.user and -Dlogin.password");
+        }
+        
+        LoginPage loginPage = new LoginPage(getDriver());
+        enter(loginPage::enterUserId, scenario.getUserId());
+        enter(loginPage::enterPassword, scenario.getPassword());
+        
+        Outcome outcome;
+        if (!loginPage.isLoginButtonEnabled()) {
+            outcome = Outcome.BLOCKED;
+        } else {
+            String loginUrl = getDriver().getCurrentUrl();
+            boolean responded = loginPage.submitAndWaitForResponse();
+            Assert.assertNull(dismissAlert(), "Input must not be executed as script");
+            if (!getDriver().getCurrentUrl().equals(loginUrl)) {
+                outcome = Outcome.LOGGED_IN;
+            } else {
+                outcome = responded ? Outcome.REJECTED : Outcome.NO_RESPONSE;
+            }
+            if (outcome == Outcome.REJECTED) {
+                TestLog.info("Error message: " + loginPage.getErrorMessage());
+            }
+        }
+        
+        TestLog.info("Outcome: " + outcome + " (expected " + scenario.getExpected() + ": " + testCase.getExpectedResult() + ")");
+        Assert.assertTrue(scenario.getExpected().contains(outcome),
+                testCase.getId() + ": got " + outcome + ", expected one of " + scenario.getExpected());
+    }
+    
+    private static void enter(Consumer<String> field, String value) {
+        if (!value.isEmpty()) {
+            field.accept(value);
+        }
+    }
+    
+    // Text of an alert the page raised, after dismissing it, or null when there was none
+    private static String dismissAlert() {
+        try {
+            Alert alert = getDriver().switchTo().alert();
+            String text = alert.getText();
+            alert.dismiss();
+            return text;
+        } catch (NoAlertPresentException e) {
+            return null;
+        }
+    }
+    
+    // Reads the sheets one row at a time, skipping cases that do not map onto the login form
+    private static final class ScenarioIterator implements Iterator<Object[]> {
+        
+        private final Iterator<Path> files;
+        private TestCaseReader reader;
+        private LoginScenario next;
+        private int skipped;
+        
+        ScenarioIterator(List<Path> files) {
+            this.files = files.iterator();
+            advance();
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+        
+        @Override
+        public Object[] next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Object[] row = {next};
+            advance();
+            return row;
+        }
+        
+        private void advance() {
+            next = null;
+            try {
+                while (next == null) {
+                    if (reader == null || !reader.hasNext()) {
+                        if (reader != null) {
+                            reader.close();
+                            reader = null;
+                        }
+                        if (!files.hasNext()) {
+                            TestLog.info("Test cases not automated as login form actions: " + skipped);
+                            return;
+                        }
+                        reader = TestCaseReader.open(files.next());
+                        continue;
+                    }
+                    next = LoginScenario.from(reader.next());
+                    if (next == null) {
+                        skipped++;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.janitri.tests;
+
+import org.testng.annotations.Test;
+
+import com.janitri.base.BaseTest;
+import com.janitri.metrics.PageTiming;
+import com.janitri.utils.TestLog;
+
+public class PagePerformanceTest extends BaseTest {
+    
+    @Test(priority = 1, description = "Login page loads within its performance budget")
+    public void testLoginPageWithinBudget() {
+        TestLog.info("\n=== Test: Login Page Performance Budget ===");
+        
+        // setUp has just navigated to the login page; its timings are still in the browser
+        PageTiming timing = assertPageWithinBudget("login");
+        
+        TestLog.info("Slowest resources:");
+        timing.slowestResources(5).forEach(resource -> TestLog.info("  " + resource));
+        TestLog.info("✓ Login page within budget");
+    }
+}
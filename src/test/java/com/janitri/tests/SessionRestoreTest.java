@@ -0,0 +1,51 @@
+package com.janitri.tests;
+
+import org.openqa.selenium.By;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import com.janitri.base.BaseTest;
+import com.janitri.data.LoginScenario;
+import com.janitri.session.SessionCache;
+import com.janitri.utils.TestLog;
+
+public class SessionRestoreTest extends BaseTest {
+    
+    // True when the cached session was restored rather than logged in through the form
+    private static boolean loginAsValidUser() {
+        String user = LoginScenario.validUser();
+        String password = LoginScenario.validPassword();
+        if (user == null || password == null) {
+            throw new SkipException("No valid credentials; set -Dlogin.user and -Dlogin.password or use -Dtarget.env=standin");
+        }
+        return SessionCache.getInstance().loginAs(getDriver(), user, password);
+    }
+    
+    @Test(description = "Log in once and land on the dashboard")
+    public void testLoginReachesDashboard() {
+        TestLog.info("\n=== Test: Login Reaches Dashboard ===");
+        
+        loginAsValidUser();
+        TestLog.info("Landed on: " + getDriver().getCurrentUrl());
+        
+        Assert.assertTrue(getDriver().findElements(By.cssSelector("input[type='password']")).isEmpty(),
+                "Logged-in page should not ask for a password");
+    }
+    
+    // The scheduler reorders by recorded duration, so the cached login is guaranteed by the dependency, not a priority
+    @Test(dependsOnMethods = "testLoginReachesDashboard",
+            description = "A fresh session restores the cached login instead of using the form")
+    public void testRestoredSessionSkipsLoginForm() {
+        TestLog.info("\n=== Test: Restored Session Skips Login Form ===");
+        
+        // Asked of this call, not the global login count, which parallel tests and other browsers also move
+        boolean restored = loginAsValidUser();
+        TestLog.info("Landed on: " + getDriver().getCurrentUrl());
+        
+        Assert.assertTrue(getDriver().findElements(By.cssSelector("input[type='password']")).isEmpty(),
+                "Restored session should not ask for a password");
+        Assert.assertTrue(restored, "Second login should restore the cached session, not drive the login form");
+        TestLog.info(SessionCache.getInstance().describe());
+    }
+}
@@ -0,0 +1,220 @@
+package com.janitri.tools;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonException;
+
+/**
+ * Follows the live event stream of a run (see {@code com.janitri.utils.EventStream}) and prints
+ * failures as they happen, plus a progress line about once a second: tests finished out of those
+ * planned, throughput, and the estimated time left at that throughput. Stops when the suite finishes.
+ *
+ * Rows of data-driven tests are counted apart from the planned tests, since how many there are is
+ * only known once their data provider has run; while one is running the ETA is shown as unknown.
+ *
+ * Give a file to follow (default target/test-events.ndjson), or a port number to listen on for a run
+ * started with -Devents.socket=localhost:&lt;port&gt;.
+ *
+ * Usage: mvn test-compile exec:java -Dexec.mainClass=com.janitri.tools.EventTail \
+ *            -Dexec.args="[events file | port]"
+ */
+public class EventTail {
+    
+    private static final long PRINT_INTERVAL_MILLIS = 1000;
+    private static final long POLL_MILLIS = 200;
+    
+    private final Json json = new Json();
+    private long startTs;
+    private long lastTs;
+    private int planned;
+    private int plannedDone;
+    private int rows;
+    // <test> contexts whose data-driven methods are still producing rows
+    private final Set<String> runningProviders = new HashSet<>();
+    private int passed;
+    private int failed;
+    private int skipped;
+    private long lastPrintMillis;
+    private boolean finished;
+    
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String source = args.length > 0 ? args[0] : "target/test-events.ndjson";
+        EventTail tail = new EventTail();
+        if (source.matches("\\d+")) {
+            tail.listen(Integer.parseInt(source));
+        } else {
+            tail.follow(Paths.get(source));
+        }
+    }
+    
+    private void listen(int port) throws IOException {
+        try (ServerSocket server = new ServerSocket(port)) {
+            System.out.println("Waiting for a run on port " + port + " (-Devents.socket=localhost:" + port + ")");
+            try (Socket connection = server.accept();
+                    BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while (!finished && (line = in.readLine()) != null) {
+                    accept(line);
+                }
+            }
+        }
+        if (!finished) {
+            System.out.println("The run disconnected before the suite finished");
+        }
+    }
+    
+    // Polls the file for appended lines; a file that shrinks was truncated by a new run, which is read from the start
+    private void follow(Path file) throws IOException, InterruptedException {
+        System.out.println("Following " + file);
+        while (!Files.exists(file)) {
+            Thread.sleep(POLL_MILLIS);
+        }
+        long position = 0;
+        StringBuilder partial = new StringBuilder();
+        while (!finished) {
+            try (RandomAccessFile in = new RandomAccessFile(file.toFile(), "r")) {
+                if (in.length() < position) {
+                    System.out.println("--- " + file + " was restarted ---");
+                    position = 0;
+                    partial.setLength(0);
+                    reset();
+                }
+                if (in.length() > position) {
+                    byte[] bytes = new byte[(int) Math.min(in.length() - position, 1 << 20)];
+                    in.seek(position);
+                    in.readFully(bytes);
+                    position += bytes.length;
+                    partial.append(new String(bytes, StandardCharsets.UTF_8));
+                    int newline;
+                    while (!finished && (newline = partial.indexOf("\n")) >= 0) {
+                        accept(partial.substring(0, newline).trim());
+                        partial.delete(0, newline + 1);
+                    }
+                    continue;
+                }
+            }
+            Thread.sleep(POLL_MILLIS);
+        }
+    }
+    
+    private void reset() {
+        startTs = 0;
+        lastTs = 0;
+        planned = 0;
+        plannedDone = 0;
+        rows = 0;
+        runningProviders.clear();
+        passed = 0;
+        failed = 0;
+        skipped = 0;
+    }
+    
+    private void accept(String line) {
+        if (line.isEmpty()) {
+            return;
+        }
+        Map<String, Object> event;
+        try {
+            event = json.toType(line, Json.MAP_TYPE);
+        } catch (JsonException e) {
+            return;
+        }
+        lastTs = Math.max(lastTs, number(event.get("ts")));
+        switch (String.valueOf(event.get("event"))) {
+            case "suite-start":
+                reset();
+                startTs = number(event.get("ts"));
+                lastTs = startTs;
+                planned = (int) number(event.get("planned"));
+                System.out.println("Suite " + event.get("suite") + " started: " + planned + " test(s) planned and "
+                        + number(event.get("dataDriven")) + " data-driven, parallel " + event.get("parallel") + " on "
+                        + event.get("threads") + " thread(s)");
+                break;
+            case "scheduled":
+                // Interceptors such as NonVisualListener may drop methods before they run
+                planned -= (int) (number(event.get("planned")) - number(event.get("scheduled")));
+                if (number(event.get("dataDriven")) > 0) {
+                    runningProviders.add(String.valueOf(event.get("context")));
+                }
+                break;
+            case "context-finish":
+                runningProviders.remove(String.valueOf(event.get("context")));
+                break;
+            case "test-finish":
+                if (Boolean.TRUE.equals(event.get("dataDriven"))) {
+                    rows++;
+                } else {
+                    plannedDone++;
+                }
+                String status = String.valueOf(event.get("status"));
+                if ("PASS".equals(status)) {
+                    passed++;
+                } else if ("SKIP".equals(status)) {
+                    skipped++;
+                } else {
+                    failed++;
+                    System.out.println("FAIL " + event.get("test") + " (" + number(event.get("ms")) + " ms): " + event.get("error"));
+                }
+                break;
+            case "artifact":
+                System.out.println("     artifact " + event.get("path"));
+                break;
+            case "step":
+                if ("FAIL".equals(event.get("status"))) {
+                    System.out.println("STEP FAILED " + event.get("class") + "." + event.get("step") + ": " + event.get("error"));
+                }
+                break;
+            case "suite-finish":
+                finished = true;
+                printProgress();
+                System.out.println("Suite " + event.get("suite") + " finished in " + number(event.get("ms")) / 1000 + " s: "
+                        + event.get("passed") + " passed, " + event.get("failed") + " failed, " + event.get("skipped") + " skipped");
+                return;
+            default:
+                break;
+        }
+        if (System.currentTimeMillis() - lastPrintMillis >= PRINT_INTERVAL_MILLIS) {
+            printProgress();
+        }
+    }
+    
+    // Throughput is measured on the run's own clock, so replaying a finished file reports what the run saw
+    private void printProgress() {
+        lastPrintMillis = System.currentTimeMillis();
+        double seconds = Math.max(1, lastTs - startTs) / 1000.0;
+        double perSecond = (passed + failed + skipped) / seconds;
+        double plannedPerSecond = plannedDone / seconds;
+        int remaining = Math.max(0, planned - plannedDone);
+        String eta;
+        if (!runningProviders.isEmpty()) {
+            eta = "? (data provider running)";
+        } else if (remaining == 0) {
+            eta = "0s";
+        } else {
+            eta = plannedPerSecond > 0 ? formatSeconds((long) (remaining / plannedPerSecond)) : "?";
+        }
+        System.out.println(String.format("[%6s] %d/%d done + %d data rows (%d passed, %d failed, %d skipped)  %.2f tests/s  ETA %s",
+                formatSeconds((long) seconds), plannedDone, planned, rows, passed, failed, skipped, perSecond, eta));
+    }
+    
+    private static String formatSeconds(long seconds) {
+        return seconds >= 60 ? (seconds / 60) + "m" + (seconds % 60) + "s" : seconds + "s";
+    }
+    
+    private static long number(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+}
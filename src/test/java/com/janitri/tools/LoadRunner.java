@@ -0,0 +1,334 @@
+package com.janitri.tools;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.json.Json;
+
+import com.janitri.base.BrowserProfile;
+import com.janitri.base.DriverFactory;
+import com.janitri.metrics.LatencyHistogram;
+import com.janitri.pages.LoginPage;
+import com.janitri.server.StandInServer;
+import com.janitri.utils.VirtualThreads;
+
+/**
+ * Drives concurrent logins against an in-process {@link StandInServer}: thousands of virtual users
+ * submit the login form over HTTP while a few real browsers keep running the {@link LoginPage} checks.
+ *
+ * Each virtual user loops over the valid (login, then load the dashboard with the session cookie),
+ * invalid (expect 401) and blank (expect 400) scenarios in the configured mix. Users run on virtual
+ * threads when the JVM has them (Java 21+), otherwise on platform threads. At the end, per-scenario
+ * throughput and p50/p90/p99/max latency are printed and written to target/perf/load-report.json.
+ *
+ * Usage: mvn test-compile exec:java -Dexec.mainClass=com.janitri.tools.LoadRunner -Dload.users=2000
+ *
+ * Configuration (system properties):
+ *   load.users          - concurrent HTTP users (default 1000)
+ *   load.seconds        - measured duration (default 30)
+ *   load.rampup.seconds - users start evenly spread over this period (default 5)
+ *   load.think.ms       - pause between a user's submissions (default 0)
+ *   load.mix            - scenario weights (default valid=20,invalid=70,blank=10)
+ *   load.browsers       - browsers running UI checks alongside (default 2, 0 for HTTP only)
+ *   load.max.error.rate - exit non-zero above this share of failed HTTP scenarios (default 0.01)
+ *   browser, browser.profile, standin.latency.ms, standin.jitter.ms as for the suite (default chrome, lean)
+ */
+public class LoadRunner {
+    
+    enum Scenario { VALID, INVALID, BLANK }
+    
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    
+    private static final Map<Scenario, LatencyHistogram> httpLatency = new EnumMap<>(Scenario.class);
+    private static final Map<Scenario, LongAdder> httpErrors = new EnumMap<>(Scenario.class);
+    private static final Map<Scenario, LatencyHistogram> uiLatency = new EnumMap<>(Scenario.class);
+    private static final Map<Scenario, LongAdder> uiFailures = new EnumMap<>(Scenario.class);
+    private static final LongAdder finishedUsers = new LongAdder();
+    
+    static {
+        for (Scenario scenario : Scenario.values()) {
+            httpLatency.put(scenario, new LatencyHistogram());
+            httpErrors.put(scenario, new LongAdder());
+            uiLatency.put(scenario, new LatencyHistogram());
+            uiFailures.put(scenario, new LongAdder());
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int users = Integer.getInteger("load.users", 1000);
+        long seconds = Long.getLong("load.seconds", 30);
+        long rampUpMillis = TimeUnit.SECONDS.toMillis(Long.getLong("load.rampup.seconds", 5));
+        long thinkMillis = Long.getLong("load.think.ms", 0);
+        int browsers = Integer.getInteger("load.browsers", 2);
+        double maxErrorRate = Double.parseDouble(System.getProperty("load.max.error.rate", "0.01"));
+        Scenario[] mix = mix(System.getProperty("load.mix", "valid=20,invalid=70,blank=10"));
+        
+        StandInServer server = StandInServer.start(0);
+        String baseUrl = server.getBaseUrl();
+        System.out.println("Serving login stand-in at " + baseUrl);
+        System.out.println(String.format("%d HTTP users on %s threads, %d browsers, %d s after %d ms ramp-up",
+                users, VirtualThreads.isAvailable() ? "virtual" : "platform", browsers, seconds, rampUpMillis));
+        
+        ExecutorService userThreads = VirtualThreads.newPerTaskExecutor("load-user");
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(REQUEST_TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.MILLISECONDS.toNanos(rampUpMillis);
+        long deadline = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+        
+        List<Thread> browserThreads = new ArrayList<>();
+        for (int i = 0; i < browsers; i++) {
+            Thread thread = new Thread(() -> runBrowser(server, measureFrom, deadline), "load-browser-" + i);
+            thread.start();
+            browserThreads.add(thread);
+        }
+        for (int i = 0; i < users; i++) {
+            long startDelay = users == 1 ? 0 : rampUpMillis * i / users;
+            userThreads.execute(() -> runUser(client, server, mix, startDelay, thinkMillis, measureFrom, deadline));
+        }
+        
+        userThreads.shutdown();
+        if (!userThreads.awaitTermination(seconds + TimeUnit.MILLISECONDS.toSeconds(rampUpMillis) + REQUEST_TIMEOUT.getSeconds(), TimeUnit.SECONDS)) {
+            long cutOff = users - finishedUsers.sum();
+            userThreads.shutdownNow();
+            System.out.println(cutOff + " HTTP user(s) still running after the request timeout were interrupted");
+        }
+        for (Thread thread : browserThreads) {
+            thread.join();
+        }
+        double measuredSeconds = Math.max(1e-9, (Math.min(System.nanoTime(), deadline) - measureFrom) / 1e9);
+        server.stop();
+        
+        boolean passed = report(measuredSeconds, users, browsers, maxErrorRate);
+        System.exit(passed ? 0 : 1);
+    }
+    
+    private static void runUser(HttpClient client, StandInServer server, Scenario[] mix, long startDelay,
+                                long thinkMillis, long measureFrom, long deadline) {
+        try {
+            Thread.sleep(startDelay);
+            while (System.nanoTime() < deadline) {
+                Scenario scenario = mix[ThreadLocalRandom.current().nextInt(mix.length)];
+                long begin = System.nanoTime();
+                boolean ok;
+                try {
+                    ok = submit(client, server, scenario);
+                } catch (IOException e) {
+                    ok = false;
+                }
+                // Ramp-up requests warm connections and threads but are not reported
+                if (begin >= measureFrom) {
+                    httpLatency.get(scenario).recordNanos(System.nanoTime() - begin);
+                    if (!ok) {
+                        httpErrors.get(scenario).increment();
+                    }
+                }
+                if (thinkMillis > 0) {
+                    Thread.sleep(thinkMillis);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            finishedUsers.increment();
+        }
+    }
+    
+    // One login attempt at the HTTP level; true when the server answered as the scenario expects
+    private static boolean submit(HttpClient client, StandInServer server, Scenario scenario)
+            throws IOException, InterruptedException {
+        String user = scenario == Scenario.BLANK ? "" : server.getValidUser();
+        String password = scenario == Scenario.VALID ? server.getValidPassword()
+                : scenario == Scenario.INVALID ? "invalidPassword123" : "";
+        String form = "userId=" + URLEncoder.encode(user, StandardCharsets.UTF_8)
+                + "&password=" + URLEncoder.encode(password, StandardCharsets.UTF_8);
+        HttpRequest login = HttpRequest.newBuilder(URI.create(server.getBaseUrl() + "api/login"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build();
+        HttpResponse<String> response = client.send(login, HttpResponse.BodyHandlers.ofString());
+        
+        switch (scenario) {
+            case VALID:
+                String cookie = response.headers().firstValue("Set-Cookie").orElse("");
+                if (response.statusCode() != 200 || !cookie.startsWith(StandInServer.SESSION_COOKIE + "=")) {
+                    return false;
+                }
+                HttpRequest dashboard = HttpRequest.newBuilder(URI.create(server.getBaseUrl() + "dashboard"))
+                        .timeout(REQUEST_TIMEOUT)
+                        .header("Cookie", cookie.split(";", 2)[0])
+                        .GET()
+                        .build();
+                return client.send(dashboard, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+            case INVALID:
+                return response.statusCode() == 401 && response.body().contains("Invalid credentials");
+            default:
+                return response.statusCode() == 400;
+        }
+    }
+    
+    // A real browser cycling through the same scenarios with the LoginPage assertions
+    private static void runBrowser(StandInServer server, long measureFrom, long deadline) {
+        WebDriver driver;
+        try {
+            driver = DriverFactory.create(System.getProperty("browser", "chrome"),
+                    BrowserProfile.resolve(System.getProperty("browser.profile", "lean")));
+        } catch (RuntimeException e) {
+            System.out.println("Browser tier unavailable, continuing with HTTP users only: " + e.getMessage());
+            return;
+        }
+        try {
+            int iteration = 0;
+            while (System.nanoTime() < deadline) {
+                Scenario scenario = Scenario.values()[iteration++ % Scenario.values().length];
+                long begin = System.nanoTime();
+                boolean ok;
+                try {
+                    ok = runUiScenario(driver, server, scenario);
+                } catch (RuntimeException e) {
+                    ok = false;
+                }
+                // Like the HTTP users, the first runs warm the browser up and are not reported
+                if (begin >= measureFrom) {
+                    uiLatency.get(scenario).recordNanos(System.nanoTime() - begin);
+                    if (!ok) {
+                        uiFailures.get(scenario).increment();
+                    }
+                }
+            }
+        } finally {
+            driver.quit();
+        }
+    }
+    
+    private static boolean runUiScenario(WebDriver driver, StandInServer server, Scenario scenario) {
+        driver.manage().deleteAllCookies();
+        driver.get(server.getBaseUrl());
+        LoginPage loginPage = new LoginPage(driver);
+        switch (scenario) {
+            case VALID:
+                loginPage.enterUserId(server.getValidUser());
+                loginPage.enterPassword(server.getValidPassword());
+                loginPage.submitAndWaitForResponse();
+                return driver.getCurrentUrl().contains("/dashboard");
+            case INVALID:
+                loginPage.enterUserId(server.getValidUser());
+                loginPage.enterPassword("invalidPassword123");
+                loginPage.submitAndWaitForResponse();
+                return loginPage.getErrorMessage().contains("Invalid credentials");
+            default:
+                return !loginPage.isLoginButtonEnabled();
+        }
+    }
+    
+    // Expands "valid=20,invalid=70,blank=10" into a weighted lookup table
+    private static Scenario[] mix(String spec) {
+        List<Scenario> table = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split("=");
+            Scenario scenario = Scenario.valueOf(pair[0].trim().toUpperCase(Locale.ROOT));
+            int weight = pair.length > 1 ? Integer.parseInt(pair[1].trim()) : 1;
+            for (int i = 0; i < weight; i++) {
+                table.add(scenario);
+            }
+        }
+        if (table.isEmpty()) {
+            throw new IllegalArgumentException("Empty load mix: " + spec);
+        }
+        return table.toArray(new Scenario[0]);
+    }
+    
+    private static boolean report(double seconds, int users, int browsers, double maxErrorRate) throws Exception {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("users", users);
+        json.put("browsers", browsers);
+        json.put("seconds", seconds);
+        json.put("virtualThreads", VirtualThreads.isAvailable());
+        
+        long requests = 0;
+        long errors = 0;
+        Map<String, Object> http = new LinkedHashMap<>();
+        System.out.println(String.format("%n=== HTTP login load (%.1f s measured) ===", seconds));
+        System.out.println(String.format("%-8s %10s %8s %10s %9s %9s %9s %9s",
+                "scenario", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        for (Scenario scenario : Scenario.values()) {
+            LatencyHistogram histogram = httpLatency.get(scenario);
+            long failed = httpErrors.get(scenario).sum();
+            requests += histogram.getCount();
+            errors += failed;
+            System.out.println(row(scenario, histogram, failed, seconds));
+            http.put(scenario.name().toLowerCase(Locale.ROOT), toJson(histogram, failed, seconds));
+        }
+        double errorRate = requests == 0 ? 1.0 : (double) errors / requests;
+        System.out.println(String.format("%-8s %10d %8d %10.1f   error rate %.3f%%",
+                "total", requests, errors, requests / seconds, errorRate * 100));
+        json.put("http", http);
+        
+        long uiFailed = 0;
+        long uiRuns = 0;
+        Map<String, Object> ui = new LinkedHashMap<>();
+        System.out.println(String.format("%n=== Browser validation tier ==="));
+        for (Scenario scenario : Scenario.values()) {
+            LatencyHistogram histogram = uiLatency.get(scenario);
+            long failed = uiFailures.get(scenario).sum();
+            uiRuns += histogram.getCount();
+            uiFailed += failed;
+            System.out.println(row(scenario, histogram, failed, seconds));
+            ui.put(scenario.name().toLowerCase(Locale.ROOT), toJson(histogram, failed, seconds));
+        }
+        json.put("ui", ui);
+        
+        Path file = Paths.get(System.getProperty("perf.dir", "target/perf"), "load-report.json");
+        Files.createDirectories(file.getParent());
+        Files.write(file, new Json().toJson(json).getBytes(StandardCharsets.UTF_8));
+        System.out.println(String.format("%nReport written to %s", file));
+        
+        boolean passed = requests > 0 && errorRate <= maxErrorRate && uiFailed == 0;
+        System.out.println(passed ? "Load run passed" : String.format("Load run failed: error rate %.3f%% (max %.3f%%), %d of %d browser checks failed",
+                errorRate * 100, maxErrorRate * 100, uiFailed, uiRuns));
+        return passed;
+    }
+    
+    private static String row(Scenario scenario, LatencyHistogram histogram, long failed, double seconds) {
+        return String.format("%-8s %10d %8d %10.1f %9.1f %9.1f %9.1f %9.1f",
+                scenario.name().toLowerCase(Locale.ROOT), histogram.getCount(), failed, histogram.getCount() / seconds,
+                histogram.percentileMicros(50) / 1000.0, histogram.percentileMicros(90) / 1000.0,
+                histogram.percentileMicros(99) / 1000.0, histogram.getMaxMicros() / 1000.0);
+    }
+    
+    private static Map<String, Object> toJson(LatencyHistogram histogram, long failed, double seconds) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("count", histogram.getCount());
+        entry.put("errors", failed);
+        entry.put("perSecond", histogram.getCount() / seconds);
+        entry.put("p50Micros", histogram.percentileMicros(50));
+        entry.put("p90Micros", histogram.percentileMicros(90));
+        entry.put("p99Micros", histogram.percentileMicros(99));
+        entry.put("maxMicros", histogram.getMaxMicros());
+        return entry;
+    }
+}
@@ -0,0 +1,71 @@
+package com.janitri.tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.openqa.selenium.WebDriver;
+
+import com.janitri.base.BrowserProfile;
+import com.janitri.base.DriverFactory;
+import com.janitri.server.StandInServer;
+
+/**
+ * Compares browser launch and navigation times between {@link BrowserProfile}s against the
+ * locally served login page fixture.
+ *
+ * Usage: mvn test-compile exec:java -Dexec.mainClass=com.janitri.tools.ProfileBenchmark \
+ *            -Dexec.args="[browsers=chrome,firefox] [iterations=3] [profiles=default,headless,lean]"
+ */
+public class ProfileBenchmark {
+    
+    public static void main(String[] args) throws Exception {
+        List<String> browsers = Arrays.asList((args.length > 0 ? args[0] : "chrome").split(","));
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        List<BrowserProfile> profiles = new ArrayList<>();
+        for (String profile : (args.length > 2 ? args[2] : "default,headless,lean").split(",")) {
+            // By name: -Dbrowser.profile would turn every compared profile into the same one
+            profiles.add(BrowserProfile.named(profile));
+        }
+        
+        StandInServer server = StandInServer.start(0);
+        // Treat the fixture's third-party origin like any other blocked analytics host
+        System.setProperty("browser.blocked.hosts", "127.0.0.1");
+        System.out.println("Serving login fixture at " + server.getBaseUrl());
+        
+        try {
+            System.out.println(String.format("%n%-10s %-10s %14s %14s %14s %14s",
+                    "browser", "profile", "launch p50 ms", "launch max ms", "nav p50 ms", "nav max ms"));
+            for (String browser : browsers) {
+                for (BrowserProfile profile : profiles) {
+                    List<Long> launches = new ArrayList<>();
+                    List<Long> navigations = new ArrayList<>();
+                    for (int i = 0; i < iterations; i++) {
+                        long start = System.nanoTime();
+                        WebDriver driver = DriverFactory.create(browser.trim(), profile);
+                        long launched = System.nanoTime();
+                        try {
+                            driver.get(server.getBaseUrl());
+                            navigations.add((System.nanoTime() - launched) / 1_000_000);
+                        } finally {
+                            driver.quit();
+                        }
+                        launches.add((launched - start) / 1_000_000);
+                    }
+                    System.out.println(String.format("%-10s %-10s %14d %14d %14d %14d",
+                            browser, profile, median(launches), Collections.max(launches),
+                            median(navigations), Collections.max(navigations)));
+                }
+            }
+        } finally {
+            server.stop();
+        }
+    }
+    
+    private static long median(List<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+}
@@ -0,0 +1,356 @@
+package com.janitri.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlInclude;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+import org.testng.xml.internal.Parser;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import com.janitri.metrics.RunHistory;
+import com.janitri.utils.DurationHistory;
+
+/**
+ * Splits the methods of a TestNG suite across several forked JVMs and merges their reports.
+ *
+ * Every included method (or every class without includes) is one unit. Units are balanced over the
+ * shards longest-first by their historical duration ({@link DurationHistory}, seeded from the last
+ * {@code target/surefire-reports/testng-results.xml}); each shard gets a generated suite file that keeps
+ * the original parameters, listeners and {@code <test>} blocks, and runs {@code org.testng.TestNG} in its
+ * own JVM. Shard output goes to {@code target/shards/shard-N/}; the merged {@code testng-results.xml} and
+ * per-class JUnit reports are written to {@code target/surefire-reports/}.
+ *
+ * Usage: mvn -Pshard test-compile exec:exec [-Dshards=4] [-Dshard.args="-Dtarget.env=standin ..."]
+ *   or   java -cp <test classpath> com.janitri.tools.ShardLauncher [shards] [suite.xml] [-Dkey=value ...]
+ *
+ * Shards default to the number of cores; -D arguments are passed on to every shard JVM.
+ */
+public class ShardLauncher {
+    
+    private static final Path SHARD_DIR = Paths.get("target", "shards");
+    private static final Path REPORT_DIR = Paths.get("target", "surefire-reports");
+    private static final long UNKNOWN_DURATION_MS = 10_000;
+    
+    private static final class Unit {
+        
+        final XmlTest test;
+        final XmlClass xmlClass;
+        final XmlInclude include;
+        final long estimateMillis;
+        
+        Unit(XmlTest test, XmlClass xmlClass, XmlInclude include, long estimateMillis) {
+            this.test = test;
+            this.xmlClass = xmlClass;
+            this.include = include;
+            this.estimateMillis = estimateMillis;
+        }
+    }
+    
+    private static final class Shard {
+        
+        final int index;
+        final List<Unit> units = new ArrayList<>();
+        long plannedMillis;
+        Process process;
+        long startNanos;
+        long wallMillis;
+        
+        Shard(int index) {
+            this.index = index;
+        }
+        
+        Path dir() {
+            return SHARD_DIR.resolve("shard-" + index);
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int shardCount = 0;
+        Path suiteFile = Paths.get("src", "test", "resources", "testng.xml");
+        List<String> forwarded = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("-D")) {
+                forwarded.add(arg);
+            } else if (arg.matches("\\d+")) {
+                shardCount = Integer.parseInt(arg);
+            } else if (!arg.isBlank()) {
+                suiteFile = Paths.get(arg);
+            }
+        }
+        if (shardCount <= 0) {
+            shardCount = Runtime.getRuntime().availableProcessors();
+        }
+        
+        // One run id for every shard, so the run history counts a sharded run once; set before RunHistory loads
+        String run = System.getProperty("history.run", UUID.randomUUID().toString().substring(0, 8));
+        System.setProperty("history.run", run);
+        
+        DurationHistory history = DurationHistory.load();
+        if (history.isEmpty()) {
+            history.importResults(REPORT_DIR.resolve("testng-results.xml"));
+        }
+        
+        XmlSuite suite = new Parser(suiteFile.toString()).parse().iterator().next();
+        List<Unit> units = units(suite, history);
+        List<Shard> shards = plan(units, Math.min(shardCount, units.size()));
+        
+        System.out.println("Sharding " + units.size() + " test units from " + suiteFile + " over " + shards.size() + " JVMs");
+        for (Shard shard : shards) {
+            Files.createDirectories(shard.dir());
+            Path shardSuite = shard.dir().resolve("testng.xml");
+            Files.write(shardSuite, shardSuite(suite, shard).toXml().getBytes(StandardCharsets.UTF_8));
+            shard.startNanos = System.nanoTime();
+            shard.process = launch(shard, shardSuite, forwarded, run);
+            System.out.println(String.format("  shard-%d: %d units, planned %.1f s", shard.index, shard.units.size(), shard.plannedMillis / 1000.0));
+        }
+        
+        long start = System.nanoTime();
+        int exitCode = 0;
+        for (Shard shard : shards) {
+            exitCode = Math.max(exitCode, shard.process.waitFor());
+            shard.wallMillis = (System.nanoTime() - shard.startNanos) / 1_000_000;
+        }
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+        
+        List<Path> results = new ArrayList<>();
+        for (Shard shard : shards) {
+            Path result = shard.dir().resolve("testng-results.xml");
+            if (Files.isRegularFile(result)) {
+                results.add(result);
+                history.importResults(result);
+            }
+        }
+        history.save();
+        
+        Files.createDirectories(REPORT_DIR);
+        int[] totals = mergeResults(results, REPORT_DIR.resolve("testng-results.xml"));
+        mergeJUnitReports(shards, REPORT_DIR);
+        
+        long summed = 0;
+        System.out.println(String.format("%n%-8s %6s %12s %12s %8s", "shard", "units", "planned s", "actual s", "exit"));
+        for (Shard shard : shards) {
+            summed += shard.wallMillis;
+            System.out.println(String.format("%-8s %6d %12.1f %12.1f %8d", "shard-" + shard.index, shard.units.size(),
+                    shard.plannedMillis / 1000.0, shard.wallMillis / 1000.0, shard.process.exitValue()));
+        }
+        System.out.println(String.format("%nWall time: %.1f s (shards summed: %.1f s, speed-up x%.2f)",
+                wallMillis / 1000.0, summed / 1000.0, wallMillis == 0 ? 0.0 : (double) summed / wallMillis));
+        System.out.println(String.format("Tests: %d total, %d passed, %d failed, %d skipped",
+                totals[0], totals[1], totals[2], totals[3]));
+        System.out.println("Merged reports: " + REPORT_DIR.resolve("testng-results.xml") + ", logs: " + SHARD_DIR + "/shard-*/output.log");
+        RunHistory runHistory = RunHistory.getInstance();
+        System.out.println(runHistory.describe(runHistory.finishSharded(wallMillis, shards.size())));
+        System.exit(exitCode == 0 && totals[2] == 0 ? 0 : 1);
+    }
+    
+    private static List<Unit> units(XmlSuite suite, DurationHistory history) {
+        long unknown = history.average(UNKNOWN_DURATION_MS);
+        List<Unit> units = new ArrayList<>();
+        for (XmlTest test : suite.getTests()) {
+            for (XmlClass xmlClass : test.getXmlClasses()) {
+                if (xmlClass.getIncludedMethods().isEmpty()) {
+                    units.add(new Unit(test, xmlClass, null, classEstimate(history, xmlClass.getName(), unknown)));
+                } else {
+                    for (XmlInclude include : xmlClass.getIncludedMethods()) {
+                        long millis = history.get(DurationHistory.key(xmlClass.getName(), include.getName()));
+                        units.add(new Unit(test, xmlClass, include, millis < 0 ? unknown : millis));
+                    }
+                }
+            }
+        }
+        return units;
+    }
+    
+    private static long classEstimate(DurationHistory history, String className, long unknown) {
+        long millis = history.classTotal(className);
+        return millis < 0 ? unknown : millis;
+    }
+    
+    // Longest processing time first: each unit goes to the currently least loaded shard
+    private static List<Shard> plan(List<Unit> units, int shardCount) {
+        List<Shard> shards = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new Shard(i + 1));
+        }
+        List<Unit> ordered = new ArrayList<>(units);
+        ordered.sort(Comparator.comparingLong((Unit unit) -> unit.estimateMillis).reversed());
+        for (Unit unit : ordered) {
+            Shard target = shards.stream().min(Comparator.comparingLong(shard -> shard.plannedMillis)).get();
+            target.units.add(unit);
+            target.plannedMillis += unit.estimateMillis;
+        }
+        // Keep the suite's own order within a shard
+        for (Shard shard : shards) {
+            shard.units.sort(Comparator.comparingInt(units::indexOf));
+        }
+        return shards;
+    }
+    
+    private static XmlSuite shardSuite(XmlSuite suite, Shard shard) {
+        XmlSuite shardSuite = new XmlSuite();
+        shardSuite.setName(suite.getName());
+        shardSuite.setParameters(new LinkedHashMap<>(suite.getParameters()));
+        shardSuite.setListeners(new ArrayList<>(suite.getListeners()));
+        shardSuite.setVerbose(suite.getVerbose());
+        shardSuite.setParallel(suite.getParallel());
+        shardSuite.setThreadCount(suite.getThreadCount());
+        
+        Map<XmlTest, XmlTest> tests = new LinkedHashMap<>();
+        Map<String, XmlClass> classes = new LinkedHashMap<>();
+        for (Unit unit : shard.units) {
+            XmlTest test = tests.computeIfAbsent(unit.test, original -> {
+                XmlTest copy = new XmlTest(shardSuite);
+                copy.setName(original.getName());
+                copy.setParameters(new LinkedHashMap<>(original.getLocalParameters()));
+                copy.setPreserveOrder(original.getPreserveOrder());
+                return copy;
+            });
+            XmlClass xmlClass = classes.computeIfAbsent(unit.test.getName() + "/" + unit.xmlClass.getName(), key -> {
+                XmlClass copy = new XmlClass(unit.xmlClass.getName(), false);
+                test.getXmlClasses().add(copy);
+                return copy;
+            });
+            if (unit.include != null) {
+                List<XmlInclude> includes = new ArrayList<>(xmlClass.getIncludedMethods());
+                includes.add(new XmlInclude(unit.include.getName()));
+                xmlClass.setIncludedMethods(includes);
+            }
+        }
+        return shardSuite;
+    }
+    
+    private static Process launch(Shard shard, Path shardSuite, List<String> forwarded, String run) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-Dfile.encoding=UTF-8");
+        command.addAll(forwarded);
+        // Each shard keeps its own latency export instead of overwriting the others'
+        command.add("-Dperf.dir=" + shard.dir().resolve("perf"));
+        command.add("-Devents.file=" + shard.dir().resolve("test-events.ndjson"));
+        // The launcher records every shard's durations from the merged results; shards must not race on the file
+        command.add("-Dduration.history.record=false");
+        // Shards share the run id and leave the suite's wall time to the launcher; each would only see its own part
+        command.add("-Dhistory.run=" + run);
+        command.add("-Dhistory.suite.record=false");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("org.testng.TestNG");
+        command.add("-d");
+        command.add(shard.dir().toString());
+        command.add(shardSuite.toString());
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(shard.dir().resolve("output.log").toFile())
+                .start();
+    }
+    
+    // Combines the suites of every shard under one testng-results root; returns total, passed, failed, skipped
+    private static int[] mergeResults(List<Path> results, Path target) throws Exception {
+        DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        Document merged = builder.newDocument();
+        Element root = merged.createElement("testng-results");
+        merged.appendChild(root);
+        int[] totals = new int[4];
+        int ignored = 0;
+        for (Path result : results) {
+            Document shard = builder.parse(result.toFile());
+            Element shardRoot = shard.getDocumentElement();
+            totals[0] += intAttribute(shardRoot, "total");
+            totals[1] += intAttribute(shardRoot, "passed");
+            totals[2] += intAttribute(shardRoot, "failed");
+            totals[3] += intAttribute(shardRoot, "skipped");
+            ignored += intAttribute(shardRoot, "ignored");
+            NodeList suites = shardRoot.getElementsByTagName("suite");
+            for (int i = 0; i < suites.getLength(); i++) {
+                root.appendChild(merged.importNode(suites.item(i), true));
+            }
+        }
+        root.setAttribute("total", String.valueOf(totals[0]));
+        root.setAttribute("passed", String.valueOf(totals[1]));
+        root.setAttribute("failed", String.valueOf(totals[2]));
+        root.setAttribute("skipped", String.valueOf(totals[3]));
+        root.setAttribute("ignored", String.valueOf(ignored));
+        write(merged, target);
+        return totals;
+    }
+    
+    // One TEST-<class>.xml per class, even when the class's methods ran on several shards
+    private static void mergeJUnitReports(List<Shard> shards, Path targetDir) throws Exception {
+        DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        Map<String, Document> merged = new LinkedHashMap<>();
+        for (Shard shard : shards) {
+            Path junitDir = shard.dir().resolve("junitreports");
+            if (!Files.isDirectory(junitDir)) {
+                continue;
+            }
+            try (DirectoryStream<Path> reports = Files.newDirectoryStream(junitDir, "TEST-*.xml")) {
+                for (Path report : reports) {
+                    Document document = builder.parse(report.toFile());
+                    Document existing = merged.putIfAbsent(report.getFileName().toString(), document);
+                    if (existing != null) {
+                        appendTestSuite(existing.getDocumentElement(), document.getDocumentElement());
+                    }
+                }
+            }
+        }
+        Path junitTarget = targetDir.resolve("junitreports");
+        Files.createDirectories(junitTarget);
+        for (Map.Entry<String, Document> entry : merged.entrySet()) {
+            write(entry.getValue(), junitTarget.resolve(entry.getKey()));
+        }
+    }
+    
+    private static void appendTestSuite(Element into, Element from) {
+        for (String counter : new String[] {"tests", "failures", "errors", "skipped"}) {
+            into.setAttribute(counter, String.valueOf(intAttribute(into, counter) + intAttribute(from, counter)));
+        }
+        double time = Double.parseDouble(into.getAttribute("time").isEmpty() ? "0" : into.getAttribute("time"))
+                + Double.parseDouble(from.getAttribute("time").isEmpty() ? "0" : from.getAttribute("time"));
+        into.setAttribute("time", String.format(Locale.ROOT, "%.3f", time));
+        NodeList children = from.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            Node child = children.item(i);
+            if (child.getNodeType() == Node.ELEMENT_NODE && "testcase".equals(child.getNodeName())) {
+                into.appendChild(into.getOwnerDocument().importNode(child, true));
+            }
+        }
+    }
+    
+    private static int intAttribute(Element element, String name) {
+        String value = element.getAttribute(name);
+        return value.isEmpty() ? 0 : Integer.parseInt(value);
+    }
+    
+    private static void write(Document document, Path target) throws Exception {
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+        File file = target.toFile();
+        transformer.transform(new DOMSource(document), new StreamResult(file));
+    }
+}
@@ -0,0 +1,81 @@
+package com.janitri.tools;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import com.janitri.metrics.RunHistory;
+
+/**
+ * Prints how each test's duration moved over the latest commits in the {@link RunHistory} store:
+ * the median of its passing runs per commit, oldest commit first, and the change from the first
+ * commit shown to the last.
+ *
+ * Usage: mvn test-compile exec:java -Dexec.mainClass=com.janitri.tools.TrendReport \
+ *            -Dexec.args="[commits=8] [test name filter]"
+ */
+public class TrendReport {
+    
+    public static void main(String[] args) {
+        int commitCount = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        String filter = args.length > 1 ? args[1] : "";
+        List<RunHistory.Entry> entries = RunHistory.load(Paths.get(System.getProperty("history.file", ".cache/run-history.ndjson")));
+        if (entries.isEmpty()) {
+            System.out.println("No run history yet; run the suite first");
+            return;
+        }
+        
+        // Commits in the order they were first run against
+        List<String> commits = new ArrayList<>(entries.stream().map(RunHistory.Entry::getCommit)
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+        commits = commits.subList(Math.max(0, commits.size() - commitCount), commits.size());
+        
+        Map<String, Map<String, List<Double>>> durations = new LinkedHashMap<>();
+        Map<String, Long> runs = new LinkedHashMap<>();
+        for (String commit : commits) {
+            runs.put(commit, entries.stream().filter(entry -> entry.getCommit().equals(commit))
+                    .map(RunHistory.Entry::getRun).distinct().count());
+        }
+        for (RunHistory.Entry entry : entries) {
+            if (entry.isPassed() && commits.contains(entry.getCommit()) && entry.getTest().contains(filter)) {
+                durations.computeIfAbsent(entry.getTest(), test -> new LinkedHashMap<>())
+                        .computeIfAbsent(entry.getCommit(), commit -> new ArrayList<>())
+                        .add((double) entry.getDurationMs());
+            }
+        }
+        
+        StringBuilder header = new StringBuilder(String.format("%-60s", "median ms per commit (runs)"));
+        for (String commit : commits) {
+            header.append(String.format(" %12s", shortCommit(commit) + "(" + runs.get(commit) + ")"));
+        }
+        System.out.println(header.append(String.format(" %8s", "change")));
+        for (String test : new TreeSet<>(durations.keySet())) {
+            StringBuilder row = new StringBuilder(String.format("%-60s", test));
+            Double first = null;
+            Double last = null;
+            for (String commit : commits) {
+                List<Double> values = durations.get(test).get(commit);
+                if (values == null) {
+                    row.append(String.format(" %12s", "-"));
+                    continue;
+                }
+                double median = RunHistory.median(values.stream().mapToDouble(Double::doubleValue).toArray());
+                first = first == null ? median : first;
+                last = median;
+                row.append(String.format(" %12.0f", median));
+            }
+            row.append(first == null || first == 0 ? String.format(" %8s", "-")
+                    : String.format(" %+7.0f%%", (last - first) * 100 / first));
+            System.out.println(row);
+        }
+    }
+    
+    private static String shortCommit(String commit) {
+        return commit.length() > 7 ? commit.substring(0, 7) : commit;
+    }
+}
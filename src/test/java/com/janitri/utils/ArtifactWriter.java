@@ -0,0 +1,164 @@
+package com.janitri.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes failure artifacts (screenshots, page source, logs) to disk on a background thread so the
+ * test thread only pays for collecting the raw bytes.
+ *
+ * Captures wait in a bounded queue and are written as one zip per capture, named after the test.
+ * Text entries are deflated; already-compressed images are stored as they are. When the queue is
+ * full, new captures are dropped and counted rather than blocking the test; callers can check
+ * {@link #isUnderPressure()} to skip expensive parts of a capture before the queue fills up.
+ */
+public final class ArtifactWriter {
+    
+    public static final class Capture {
+        
+        private final String name;
+        private final Map<String, byte[]> entries = new LinkedHashMap<>();
+        
+        public Capture(String name) {
+            this.name = name;
+        }
+        
+        public Capture add(String entryName, byte[] content) {
+            if (content != null) {
+                entries.put(entryName, content);
+            }
+            return this;
+        }
+        
+        public String getName() {
+            return name;
+        }
+    }
+    
+    private final Path directory;
+    private final BlockingQueue<Capture> queue;
+    private final int capacity;
+    private final Thread worker;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong inFlight = new AtomicLong();
+    
+    public ArtifactWriter(Path directory, int capacity) {
+        this.directory = directory;
+        this.capacity = capacity;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.worker = new Thread(this::drain, "artifact-writer");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+    
+    /**
+     * Queues the capture without blocking. Returns false, and counts the capture as dropped, when the
+     * queue is full.
+     */
+    public boolean submit(Capture capture) {
+        inFlight.incrementAndGet();
+        if (queue.offer(capture)) {
+            return true;
+        }
+        inFlight.decrementAndGet();
+        dropped.incrementAndGet();
+        return false;
+    }
+    
+    // More than half the queue is waiting to be written
+    public boolean isUnderPressure() {
+        return queue.size() * 2 > capacity;
+    }
+    
+    /**
+     * Waits up to the timeout for queued captures to be written. Returns false if some were still
+     * pending; those are lost when the JVM exits.
+     */
+    public boolean flush(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return inFlight.get() == 0;
+    }
+    
+    private void drain() {
+        while (true) {
+            Capture capture;
+            try {
+                capture = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                write(capture);
+                written.incrementAndGet();
+            } catch (IOException | RuntimeException e) {
+                failed.incrementAndGet();
+                TestLog.warn("Could not write failure artifacts for " + capture.name + ": " + e.getMessage());
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+    
+    // Where the capture is written once its turn comes
+    public Path fileFor(Capture capture) {
+        return directory.resolve(capture.name + ".zip");
+    }
+    
+    private void write(Capture capture) throws IOException {
+        Files.createDirectories(directory);
+        Path file = fileFor(capture);
+        try (OutputStream out = Files.newOutputStream(file); ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (Map.Entry<String, byte[]> entry : capture.entries.entrySet()) {
+                ZipEntry zipEntry = new ZipEntry(entry.getKey());
+                byte[] content = entry.getValue();
+                if (isCompressed(entry.getKey())) {
+                    // Deflating a PNG again costs CPU for nothing
+                    CRC32 crc = new CRC32();
+                    crc.update(content);
+                    zipEntry.setMethod(ZipEntry.STORED);
+                    zipEntry.setSize(content.length);
+                    zipEntry.setCompressedSize(content.length);
+                    zipEntry.setCrc(crc.getValue());
+                }
+                zip.putNextEntry(zipEntry);
+                zip.write(content);
+                zip.closeEntry();
+            }
+        }
+        bytesWritten.addAndGet(Files.size(file));
+        TestLog.info("Failure artifacts written to " + file);
+    }
+    
+    private static boolean isCompressed(String entryName) {
+        return entryName.endsWith(".png") || entryName.endsWith(".jpg") || entryName.endsWith(".gz");
+    }
+    
+    public String describe() {
+        return String.format("=== Failure Artifacts ===%n"
+                        + "Written: %d (%.1f KB), dropped under load: %d, write errors: %d, pending: %d%n"
+                        + "Directory: %s",
+                written.get(), bytesWritten.get() / 1024.0, dropped.get(), failed.get(), inFlight.get(), directory);
+    }
+}
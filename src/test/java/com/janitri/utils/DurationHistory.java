@@ -0,0 +1,160 @@
+package com.janitri.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Historical duration of each test method, keyed {@code ClassName.method}, persisted between runs.
+ *
+ * Durations are smoothed (each new observation counts for half), so one slow run does not
+ * reshuffle everything planned from them. Observations can be imported from any TestNG
+ * {@code testng-results.xml}.
+ *
+ * History file: -Dduration.history.file (default .cache/test-durations.properties)
+ */
+public final class DurationHistory {
+    
+    private static final double SMOOTHING = 0.5;
+    
+    private final Path file;
+    private final Map<String, Long> durations = new ConcurrentHashMap<>();
+    
+    private DurationHistory(Path file) {
+        this.file = file;
+    }
+    
+    public static DurationHistory load() {
+        return load(Paths.get(System.getProperty("duration.history.file", ".cache/test-durations.properties")));
+    }
+    
+    public static DurationHistory load(Path file) {
+        DurationHistory history = new DurationHistory(file);
+        if (Files.isRegularFile(file)) {
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+                for (String key : properties.stringPropertyNames()) {
+                    history.durations.put(key, Long.parseLong(properties.getProperty(key)));
+                }
+            } catch (IOException | NumberFormatException e) {
+                TestLog.warn("Could not read duration history " + file + ": " + e.getMessage());
+            }
+        }
+        return history;
+    }
+    
+    public static String key(String className, String methodName) {
+        return className + "." + methodName;
+    }
+    
+    // Smoothed duration in ms, or -1 when the test has never been observed
+    public long get(String key) {
+        return durations.getOrDefault(key, -1L);
+    }
+    
+    // Sum over the class's observed methods, or -1 when none has been observed
+    public long classTotal(String className) {
+        String prefix = className + ".";
+        return durations.entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith(prefix))
+                .mapToLong(Map.Entry::getValue)
+                .reduce(Long::sum)
+                .orElse(-1L);
+    }
+    
+    public boolean isEmpty() {
+        return durations.isEmpty();
+    }
+    
+    // Mean over everything observed, used as the estimate for new tests
+    public long average(long defaultMillis) {
+        return durations.isEmpty() ? defaultMillis
+                : (long) durations.values().stream().mapToLong(Long::longValue).average().orElse(defaultMillis);
+    }
+    
+    public void record(String key, long millis) {
+        durations.merge(key, millis, (previous, latest) -> Math.round(previous * (1 - SMOOTHING) + latest * SMOOTHING));
+    }
+    
+    /**
+     * Records every test method of a {@code testng-results.xml}. Configuration time (set-up, tear-down)
+     * is added to the preceding test method of the same class, or to the first one, so the per-class
+     * total matches what a shard actually pays.
+     */
+    public int importResults(Path resultsXml) {
+        if (!Files.isRegularFile(resultsXml)) {
+            return 0;
+        }
+        Map<String, Long> observed = new ConcurrentHashMap<>();
+        try (InputStream in = Files.newInputStream(resultsXml)) {
+            XMLStreamReader reader = XMLInputFactory.newFactory().createXMLStreamReader(in);
+            String className = null;
+            String lastTest = null;
+            long pendingConfig = 0;
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                if ("class".equals(reader.getLocalName())) {
+                    className = reader.getAttributeValue(null, "name");
+                    lastTest = null;
+                    pendingConfig = 0;
+                } else if ("test-method".equals(reader.getLocalName()) && className != null) {
+                    long millis = Long.parseLong(reader.getAttributeValue(null, "duration-ms"));
+                    if (Boolean.parseBoolean(reader.getAttributeValue(null, "is-config"))) {
+                        if (lastTest != null) {
+                            observed.merge(lastTest, millis, Long::sum);
+                        } else {
+                            pendingConfig += millis;
+                        }
+                    } else if ("SKIP".equals(reader.getAttributeValue(null, "status"))) {
+                        // A skipped test says nothing about how long it takes
+                        lastTest = null;
+                        pendingConfig = 0;
+                    } else {
+                        lastTest = key(className, reader.getAttributeValue(null, "name"));
+                        observed.merge(lastTest, millis + pendingConfig, Long::sum);
+                        pendingConfig = 0;
+                    }
+                }
+            }
+            reader.close();
+        } catch (IOException | XMLStreamException | NumberFormatException e) {
+            TestLog.warn("Could not import test durations from " + resultsXml + ": " + e.getMessage());
+            return 0;
+        }
+        observed.forEach(this::record);
+        return observed.size();
+    }
+    
+    public void save() {
+        Properties properties = new Properties();
+        durations.forEach((key, millis) -> properties.setProperty(key, String.valueOf(millis)));
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (OutputStream out = Files.newOutputStream(file)) {
+                properties.store(out, "Smoothed test method durations in ms");
+            }
+        } catch (IOException e) {
+            TestLog.warn("Could not write duration history " + file + ": " + e.getMessage());
+        }
+    }
+    
+    public Path getFile() {
+        return file;
+    }
+}
@@ -0,0 +1,213 @@
+package com.janitri.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonOutput;
+
+/**
+ * Live stream of structured run events, one JSON object per line, for watching a long run while it
+ * is still going (see {@code com.janitri.tools.EventTail}).
+ *
+ * {@link #emit} only puts the event on a lock-free queue; a background thread serialises the queue
+ * and writes it out in batches, flushing after each one so a tail sees events within
+ * {@value #DRAIN_INTERVAL_MILLIS} ms. When more than {@code events.queue.size} events are waiting,
+ * new ones are dropped and counted instead of holding up the test threads.
+ *
+ *   events.enabled    - false turns the stream off
+ *   events.file       - output file, truncated when the run starts (default target/test-events.ndjson)
+ *   events.socket     - host:port to stream to over TCP instead; falls back to the file if nobody listens
+ *                       or the connection breaks
+ *   events.queue.size - events waiting to be written before new ones are dropped (default 10000)
+ */
+public final class EventStream {
+    
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("events.enabled", "true"));
+    private static final long DRAIN_INTERVAL_MILLIS = 50;
+    private static final int CAPACITY = Integer.getInteger("events.queue.size", 10_000);
+    
+    private static final ConcurrentLinkedQueue<Map<String, Object>> queue = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger queued = new AtomicInteger();
+    private static final AtomicLong written = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+    private static volatile Thread writerThread;
+    private static volatile String target;
+    // Only touched by the writer thread
+    private static Writer out;
+    private static boolean toSocket;
+    private static boolean fileFailed;
+    
+    private EventStream() {
+    }
+    
+    /**
+     * Queues an event; never blocks. Fields are written after {@code ts} (epoch ms) and {@code event}
+     * in the order given.
+     */
+    public static void emit(String event, Map<String, Object> fields) {
+        if (!ENABLED) {
+            return;
+        }
+        if (queued.incrementAndGet() > CAPACITY) {
+            queued.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("ts", System.currentTimeMillis());
+        line.put("event", event);
+        line.putAll(fields);
+        queue.offer(line);
+        if (writerThread == null) {
+            start();
+        }
+    }
+    
+    public static Map<String, Object> fields(Object... keysAndValues) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < keysAndValues.length; i += 2) {
+            fields.put(String.valueOf(keysAndValues[i]), keysAndValues[i + 1]);
+        }
+        return fields;
+    }
+    
+    private static synchronized void start() {
+        if (writerThread != null) {
+            return;
+        }
+        Thread thread = new Thread(EventStream::writeLoop, "event-stream-writer");
+        thread.setDaemon(true);
+        thread.start();
+        writerThread = thread;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(2, TimeUnit.SECONDS), "event-stream-flush"));
+    }
+    
+    private static void writeLoop() {
+        out = open();
+        Json json = new Json();
+        while (true) {
+            Map<String, Object> event;
+            int taken = 0;
+            int lines = 0;
+            try {
+                while ((event = queue.poll()) != null) {
+                    taken++;
+                    String line = toLine(json, event);
+                    if (line == null) {
+                        dropped.incrementAndGet();
+                        continue;
+                    }
+                    out.write(line);
+                    lines++;
+                }
+                if (lines > 0) {
+                    out.flush();
+                    written.addAndGet(lines);
+                }
+            } catch (IOException e) {
+                dropped.addAndGet(lines);
+                failed(e);
+            } finally {
+                queued.addAndGet(-taken);
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(DRAIN_INTERVAL_MILLIS));
+        }
+    }
+    
+    // One event that cannot be serialised is dropped on its own, without touching the output
+    private static String toLine(Json json, Map<String, Object> event) {
+        // JsonOutput closes what it writes to, so each line goes through a buffer of its own
+        StringBuilder line = new StringBuilder(256);
+        try (JsonOutput output = json.newOutput(line)) {
+            output.setPrettyPrint(false).write(event);
+        } catch (RuntimeException e) {
+            TestLog.debug(() -> "Dropped an event that could not be serialised: " + e.getMessage());
+            return null;
+        }
+        return line.append(System.lineSeparator()).toString();
+    }
+    
+    // A broken socket falls back to the file, appending; a failing file keeps being tried, warned about once
+    private static void failed(IOException e) {
+        if (toSocket) {
+            TestLog.warn("Event stream to " + target + " failed, switching to the file: " + e.getMessage());
+            try {
+                out.close();
+            } catch (IOException closeFailure) {
+                // Already broken
+            }
+            toSocket = false;
+            out = openFile(true);
+        } else if (!fileFailed) {
+            fileFailed = true;
+            TestLog.warn("Could not write events to " + target + ", they are dropped while that lasts: " + e.getMessage());
+        }
+    }
+    
+    private static Writer open() {
+        String socket = System.getProperty("events.socket");
+        if (socket != null && !socket.isBlank()) {
+            int colon = socket.lastIndexOf(':');
+            try {
+                Socket connection = new Socket();
+                connection.connect(new InetSocketAddress(socket.substring(0, colon).trim(),
+                        Integer.parseInt(socket.substring(colon + 1).trim())), 2000);
+                target = socket.trim();
+                toSocket = true;
+                return new BufferedWriter(new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8));
+            } catch (IOException | RuntimeException e) {
+                TestLog.warn("Could not stream events to " + socket + ", writing them to the file: " + e.getMessage());
+            }
+        }
+        return openFile(false);
+    }
+    
+    // Truncated when the run starts; appended to when a broken socket falls back to it mid-run
+    private static Writer openFile(boolean append) {
+        Path file = Paths.get(System.getProperty("events.file", "target/test-events.ndjson"));
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            target = file.toString();
+            return append
+                    ? Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)
+                    : Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            TestLog.warn("Could not open event stream " + file + ", events are discarded: " + e.getMessage());
+            target = "nowhere";
+            return Writer.nullWriter();
+        }
+    }
+    
+    // Waits until everything emitted so far has been written, or the timeout has passed
+    public static boolean flush(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (queued.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        return queued.get() == 0;
+    }
+    
+    public static String describe() {
+        return String.format("=== Event Stream ===%nWritten: %d, dropped under load: %d, pending: %d, to %s",
+                written.get(), dropped.get(), queued.get(), target);
+    }
+}
@@ -0,0 +1,137 @@
+package com.janitri.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Console output for tests, page objects and the suite infrastructure.
+ *
+ * Messages are levelled (-Dlog.level=debug|info|warn, default info). Debug messages take a
+ * {@link Supplier} so expensive diagnostics are only built when debug is enabled; callers guard
+ * probes that cost remote calls with {@link #isDebugEnabled()}.
+ *
+ * Lines are handed to a single background writer instead of each thread printing through the
+ * synchronized {@code System.out}. In parallel runs each test's lines are collected in a per-thread
+ * buffer and written as one block when the test finishes, so concurrent tests do not interleave.
+ */
+public final class TestLog {
+    
+    public enum Level { DEBUG, INFO, WARN }
+    
+    private static final Level LEVEL = Level.valueOf(System.getProperty("log.level", "info").trim().toUpperCase(Locale.ROOT));
+    
+    private static final ThreadLocal<StringBuilder> buffer = new ThreadLocal<>();
+    private static final BlockingQueue<String> pending = new LinkedBlockingQueue<>();
+    private static final AtomicLong enqueued = new AtomicLong();
+    private static final AtomicLong written = new AtomicLong();
+    private static volatile boolean buffered;
+    
+    static {
+        Thread writer = new Thread(TestLog::writeLoop, "test-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(TestLog::flush, "test-log-flush"));
+    }
+    
+    private TestLog() {
+    }
+    
+    public static void setBuffered(boolean enabled) {
+        buffered = enabled;
+    }
+    
+    public static boolean isBuffered() {
+        return buffered;
+    }
+    
+    public static boolean isDebugEnabled() {
+        return LEVEL == Level.DEBUG;
+    }
+    
+    public static void debug(Supplier<String> message) {
+        if (isDebugEnabled()) {
+            log("[DEBUG] " + message.get());
+        }
+    }
+    
+    public static void info(String message) {
+        if (LEVEL != Level.WARN) {
+            log(message);
+        }
+    }
+    
+    public static void warn(String message) {
+        log(message);
+    }
+    
+    private static void log(String message) {
+        StringBuilder testBuffer = buffer.get();
+        if (testBuffer != null) {
+            testBuffer.append(message).append(System.lineSeparator());
+        } else {
+            enqueue(message + System.lineSeparator());
+        }
+    }
+    
+    public static void startTest(String testName) {
+        if (buffered) {
+            StringBuilder testBuffer = new StringBuilder(1024);
+            testBuffer.append(System.lineSeparator())
+                    .append("----- ").append(testName)
+                    .append(" [").append(Thread.currentThread().getName()).append("] -----")
+                    .append(System.lineSeparator());
+            buffer.set(testBuffer);
+        }
+    }
+    
+    public static void endTest() {
+        StringBuilder testBuffer = buffer.get();
+        buffer.remove();
+        if (testBuffer != null) {
+            enqueue(testBuffer.toString());
+        }
+    }
+    
+    // Blocks until everything logged so far has been written, or a few seconds have passed
+    public static void flush() {
+        long target = enqueued.get();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (written.get() < target && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+    
+    private static void enqueue(String text) {
+        enqueued.incrementAndGet();
+        pending.add(text);
+    }
+    
+    private static void writeLoop() {
+        List<String> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(pending.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            pending.drainTo(batch);
+            StringBuilder out = new StringBuilder();
+            batch.forEach(out::append);
+            System.out.print(out);
+            System.out.flush();
+            written.addAndGet(batch.size());
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.janitri.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-per-task executors that use virtual threads when the running JVM has them (Java 21+).
+ *
+ * The project compiles for Java 11, so virtual threads are looked up reflectively; on older runtimes
+ * the executors fall back to a cached pool of daemon platform threads, which behaves the same but
+ * costs a real thread per blocked task.
+ */
+public final class VirtualThreads {
+    
+    private static final Method NEW_VIRTUAL_EXECUTOR = lookup();
+    
+    private VirtualThreads() {
+    }
+    
+    public static boolean isAvailable() {
+        return NEW_VIRTUAL_EXECUTOR != null;
+    }
+    
+    public static ExecutorService newPerTaskExecutor(String namePrefix) {
+        if (NEW_VIRTUAL_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // Fall back to platform threads below
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    private static Method lookup() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.janitri.waits;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+
+/**
+ * Readiness conditions used in place of fixed sleeps. Anything already covered by
+ * {@code ExpectedConditions} is used from there directly.
+ */
+public final class Conditions {
+    
+    private Conditions() {
+    }
+    
+    public static ExpectedCondition<Boolean> documentReady() {
+        return new ExpectedCondition<Boolean>() {
+            @Override
+            public Boolean apply(WebDriver driver) {
+                return "complete".equals(((JavascriptExecutor) driver).executeScript("return document.readyState"));
+            }
+            
+            @Override
+            public String toString() {
+                return "document.readyState to be 'complete'";
+            }
+        };
+    }
+    
+    public static ExpectedCondition<Boolean> urlChangesFrom(String previousUrl) {
+        return new ExpectedCondition<Boolean>() {
+            @Override
+            public Boolean apply(WebDriver driver) {
+                return !previousUrl.equals(driver.getCurrentUrl());
+            }
+            
+            @Override
+            public String toString() {
+                return "URL to change from " + previousUrl;
+            }
+        };
+    }
+    
+    public static ExpectedCondition<Boolean> attributeChangesFrom(WebElement element, String attribute, String previousValue) {
+        return new ExpectedCondition<Boolean>() {
+            @Override
+            public Boolean apply(WebDriver driver) {
+                String value = element.getAttribute(attribute);
+                return value == null ? previousValue != null : !value.equals(previousValue);
+            }
+            
+            @Override
+            public String toString() {
+                return attribute + " attribute to change from '" + previousValue + "'";
+            }
+        };
+    }
+    
+    public static ExpectedCondition<Boolean> enabledStateToBe(WebElement element, boolean enabled) {
+        return new ExpectedCondition<Boolean>() {
+            @Override
+            public Boolean apply(WebDriver driver) {
+                return element.isDisplayed() && element.isEnabled() == enabled;
+            }
+            
+            @Override
+            public String toString() {
+                return "element to be " + (enabled ? "enabled" : "disabled");
+            }
+        };
+    }
+}
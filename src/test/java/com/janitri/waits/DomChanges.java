@@ -0,0 +1,134 @@
+package com.janitri.waits;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.ScriptTimeoutException;
+import org.openqa.selenium.UnsupportedCommandException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WrapsDriver;
+
+import com.janitri.utils.TestLog;
+
+/**
+ * Blocks in the browser until the page changes, so a wait can re-check its condition right after
+ * the DOM is mutated instead of on a fixed polling interval.
+ *
+ * The first call on a page installs a {@code MutationObserver} on the whole document that counts
+ * every change, together with listeners for what changes a page without mutating the DOM (typing,
+ * finished CSS transitions and animations, readyState), and waits a short first slice. Each later
+ * call passes the count it last saw and returns as soon as the count moves past it, or after the
+ * slice, so a change that lands between two calls is never missed. A navigation drops the observer;
+ * the next call installs it again and returns at once.
+ *
+ * WebDriver BiDi has no DOM mutation events (only log, network and browsing context events), so the
+ * observer is driven through executeAsyncScript, which every W3C driver supports. Drivers that
+ * cannot run it, or whose MutationObserver never fires (HtmlUnit), are remembered and left to polling.
+ */
+final class DomChanges {
+    
+    static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("wait.push", "true"));
+    // Upper bound on one blocking call; changes that reach no event (e.g. a media query) are seen at the latest then
+    static final long SLICE_MILLIS = Long.getLong("wait.push.slice.ms", 2000);
+    
+    // A change between the first check and installing the observer goes unseen, so the first call only waits this long
+    private static final long FIRST_SLICE_MILLIS = 100;
+    
+    // Returned when the browser could not be asked; the caller polls this round instead
+    static final long FAILED = Long.MIN_VALUE;
+    
+    // Resolves with the change count, -1 when the page has no working MutationObserver
+    private static final String WAIT_SCRIPT =
+            "var lastSeen = arguments[0], sliceMs = arguments[1], firstSliceMs = arguments[2];"
+            + "var done = arguments[arguments.length - 1];"
+            + "function waitForChange(state, seen, ms) {"
+            + "  if (state.count !== seen) { done(state.count); return; }"
+            + "  var finished = false;"
+            + "  var finish = function () { if (!finished) { finished = true; done(state.count); } };"
+            + "  state.waiters.push(finish);"
+            + "  setTimeout(finish, ms);"
+            + "}"
+            + "function install() {"
+            + "  var state = window.__janitriDomChanges = { count: 0, waiters: [] };"
+            + "  var changed = function () {"
+            + "    state.count++;"
+            + "    var waiters = state.waiters; state.waiters = [];"
+            + "    for (var i = 0; i < waiters.length; i++) { waiters[i](); }"
+            + "  };"
+            + "  new MutationObserver(changed).observe(document, "
+            + "    { subtree: true, childList: true, attributes: true, characterData: true });"
+            + "  ['input', 'change', 'transitionend', 'animationend', 'readystatechange'].forEach(function (type) {"
+            + "    document.addEventListener(type, changed, true);"
+            + "  });"
+            + "  return state;"
+            + "}"
+            + "var state = window.__janitriDomChanges;"
+            + "if (state) { waitForChange(state, lastSeen, sliceMs); return; }"
+            + "if (typeof MutationObserver === 'undefined') { done(-1); return; }"
+            // Some engines define MutationObserver but never call it back; try it on a detached node first
+            + "var probe = document.createElement('div'), observed = false;"
+            + "new MutationObserver(function () { observed = true; }).observe(probe, { subtree: true, childList: true });"
+            + "probe.appendChild(document.createElement('span'));"
+            + "setTimeout(function () {"
+            + "  if (!observed) { done(-1); return; }"
+            + "  state = install();"
+            // After a navigation mid-wait anything may have changed; otherwise only the gap since the first check is unseen
+            + "  if (lastSeen !== -1) { done(state.count); } else { waitForChange(state, 0, Math.min(sliceMs, firstSliceMs)); }"
+            + "}, 0);";
+    
+    // Keyed by the pooled driver under any decorators, which BaseTest wraps anew for every test
+    private static final Map<WebDriver, Boolean> unsupported = Collections.synchronizedMap(new WeakHashMap<>());
+    
+    private DomChanges() {
+    }
+    
+    static boolean isSupported(WebDriver driver) {
+        return ENABLED && driver instanceof JavascriptExecutor && !unsupported.containsKey(unwrap(driver));
+    }
+    
+    private static WebDriver unwrap(WebDriver driver) {
+        WebDriver current = driver;
+        while (current instanceof WrapsDriver) {
+            WebDriver wrapped = ((WrapsDriver) current).getWrappedDriver();
+            if (wrapped == null || wrapped == current) {
+                break;
+            }
+            current = wrapped;
+        }
+        return current;
+    }
+    
+    /**
+     * Waits up to {@code sliceMillis} for a change after {@code lastSeen} (-1 before the first call)
+     * and returns the current count, which equals {@code lastSeen} when the slice ran out. Returns
+     * {@link #FAILED} if the browser could not be asked; drivers that cannot run the observer at all
+     * stop being asked.
+     */
+    static long awaitChange(WebDriver driver, long lastSeen, long sliceMillis) {
+        try {
+            Object count = ((JavascriptExecutor) driver).executeAsyncScript(WAIT_SCRIPT, lastSeen, sliceMillis, FIRST_SLICE_MILLIS);
+            if (count instanceof Number && ((Number) count).longValue() >= 0) {
+                return ((Number) count).longValue();
+            }
+            markUnsupported(driver, "no working MutationObserver in the page");
+        } catch (UnsupportedCommandException e) {
+            markUnsupported(driver, e.getMessage());
+        } catch (ScriptTimeoutException e) {
+            // Slice longer than the session's script timeout; nothing is known to have changed
+            return lastSeen;
+        } catch (WebDriverException e) {
+            // Usually the page navigated away mid-call, which the condition will notice
+            TestLog.debug(() -> "DOM change wait interrupted: " + e.getMessage());
+        }
+        return FAILED;
+    }
+    
+    private static void markUnsupported(WebDriver driver, String reason) {
+        if (unsupported.put(unwrap(driver), Boolean.TRUE) == null) {
+            TestLog.debug(() -> "Falling back to polling waits on " + driver.getClass().getSimpleName() + ": " + reason);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.janitri.waits;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openqa.selenium.NotFoundException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+
+import com.janitri.utils.EventStream;
+
+/**
+ * Drop-in replacement for {@code WebDriverWait} that draws from the current test's
+ * {@link WaitBudget} and polls adaptively.
+ *
+ * Between checks the wait blocks in the browser until the DOM changes ({@link DomChanges}), so a
+ * condition is re-checked as soon as the page updates rather than on the next poll, and an unchanged
+ * page costs one request per {@code wait.push.slice.ms}. Drivers that cannot run the observer, and
+ * -Dwait.push=false, fall back to polling: it starts at {@value #INITIAL_POLL_MILLIS} ms and backs off
+ * by half each round up to {@value #MAX_POLL_MILLIS} ms, so conditions that are already (or almost)
+ * true return quickly while long waits do not flood the driver with requests. The same interval is
+ * kept as a floor between checks woken by a change, so a page that keeps mutating (a spinner, a
+ * ticking clock) is checked no more often than the polling fallback would check it.
+ */
+public class SmartWait {
+    
+    private static final long INITIAL_POLL_MILLIS = 25;
+    private static final long MAX_POLL_MILLIS = 500;
+    private static final long EVENT_MIN_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("events.wait.min.ms", 100));
+    
+    private final WebDriver driver;
+    private final Duration timeout;
+    
+    public SmartWait(WebDriver driver, Duration timeout) {
+        this.driver = driver;
+        this.timeout = timeout;
+    }
+    
+    public SmartWait withTimeout(Duration newTimeout) {
+        return new SmartWait(driver, newTimeout);
+    }
+    
+    public <V> V until(Function<? super WebDriver, V> condition) {
+        WaitBudget budget = WaitBudget.current();
+        long start = System.nanoTime();
+        long deadline = budget != null ? budget.deadlineFor(timeout) : start + timeout.toNanos();
+        long pollMillis = INITIAL_POLL_MILLIS;
+        long changesSeen = -1;
+        RuntimeException lastError = null;
+        
+        try {
+            while (true) {
+                long checkStart = System.nanoTime();
+                try {
+                    V value = condition.apply(driver);
+                    if (value != null && !Boolean.FALSE.equals(value)) {
+                        record(budget, start, false);
+                        return value;
+                    }
+                } catch (NotFoundException | StaleElementReferenceException e) {
+                    lastError = e;
+                }
+                
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    break;
+                }
+                if (DomChanges.isSupported(driver)) {
+                    long changes = DomChanges.awaitChange(driver, changesSeen,
+                            Math.min(DomChanges.SLICE_MILLIS, Math.max(1, remainingNanos / 1_000_000)));
+                    if (changes != DomChanges.FAILED) {
+                        changesSeen = changes;
+                        // A page that never stops changing would otherwise be re-checked back to back
+                        long floorNanos = Math.min(checkStart + TimeUnit.MILLISECONDS.toNanos(pollMillis),
+                                deadline) - System.nanoTime();
+                        if (floorNanos > 0) {
+                            TimeUnit.NANOSECONDS.sleep(floorNanos);
+                        }
+                        pollMillis = Math.min(MAX_POLL_MILLIS, pollMillis + pollMillis / 2);
+                        continue;
+                    }
+                }
+                Thread.sleep(Math.min(pollMillis, Math.max(1, remainingNanos / 1_000_000)));
+                pollMillis = Math.min(MAX_POLL_MILLIS, pollMillis + pollMillis / 2);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            record(budget, start, true);
+            throw new TimeoutException("Interrupted while waiting for " + condition, e);
+        }
+        
+        record(budget, start, true);
+        String reason = budget != null && budget.isExhausted()
+                ? "test wait budget exhausted"
+                : "timed out after " + timeout.toMillis() + " ms";
+        throw new TimeoutException("Expected condition failed: " + condition + " (" + reason + ")", lastError);
+    }
+    
+    private static void record(WaitBudget budget, long start, boolean timedOut) {
+        long elapsed = System.nanoTime() - start;
+        if (budget != null) {
+            budget.record(elapsed, timedOut);
+        }
+        // Only waits long enough to matter, so the stream is not flooded with ones that were already true
+        if (EventStream.ENABLED && (timedOut || elapsed >= EVENT_MIN_NANOS)) {
+            EventStream.emit("wait", EventStream.fields(
+                    "test", budget != null ? budget.getTestName() : null,
+                    "ms", elapsed / 1_000_000,
+                    "timedOut", timedOut));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.janitri.waits;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-test time budget that every {@link SmartWait} draws from.
+ *
+ * {@code BaseTest} starts a budget when a test is set up and finishes it on tear down. A wait never
+ * sleeps past the end of the budget, so a page that is missing elements fails the test in bounded
+ * time instead of paying every wait's full timeout. Time spent waiting is recorded per test.
+ *
+ * Budget length: -Dtest.budget.seconds (default 90).
+ */
+public final class WaitBudget {
+    
+    private static final Duration DEFAULT_BUDGET = Duration.ofSeconds(Long.getLong("test.budget.seconds", 90));
+    
+    private static final ThreadLocal<WaitBudget> current = new ThreadLocal<>();
+    private static final Map<String, WaitBudget> finished = new ConcurrentHashMap<>();
+    
+    private final String testName;
+    private final Duration budget;
+    private final long deadlineNanos;
+    private long waitedNanos;
+    private int waitCount;
+    private int timeouts;
+    
+    private WaitBudget(String testName, Duration budget) {
+        this.testName = testName;
+        this.budget = budget;
+        this.deadlineNanos = System.nanoTime() + budget.toNanos();
+    }
+    
+    public static WaitBudget start(String testName) {
+        WaitBudget waitBudget = new WaitBudget(testName, DEFAULT_BUDGET);
+        current.set(waitBudget);
+        return waitBudget;
+    }
+    
+    // Budget of the test running on this thread, or null outside of a test
+    public static WaitBudget current() {
+        return current.get();
+    }
+    
+    public static WaitBudget finish() {
+        WaitBudget waitBudget = current.get();
+        current.remove();
+        if (waitBudget != null) {
+            finished.put(waitBudget.testName, waitBudget);
+        }
+        return waitBudget;
+    }
+    
+    public static Map<String, WaitBudget> finishedTests() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(finished));
+    }
+    
+    // Absolute deadline for a wait that asks for the given timeout
+    public long deadlineFor(Duration timeout) {
+        return Math.min(System.nanoTime() + timeout.toNanos(), deadlineNanos);
+    }
+    
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+    }
+    
+    public boolean isExhausted() {
+        return System.nanoTime() >= deadlineNanos;
+    }
+    
+    void record(long nanos, boolean timedOut) {
+        waitedNanos += nanos;
+        waitCount++;
+        if (timedOut) {
+            timeouts++;
+        }
+    }
+    
+    public String getTestName() {
+        return testName;
+    }
+    
+    public Duration getBudget() {
+        return budget;
+    }
+    
+    public long getWaitedMillis() {
+        return waitedNanos / 1_000_000;
+    }
+    
+    public int getWaitCount() {
+        return waitCount;
+    }
+    
+    public int getTimeoutCount() {
+        return timeouts;
+    }
+    
+    public String describe() {
+        return String.format("Wait time: %d ms across %d waits (%d timed out), budget %d s, %d ms left",
+                getWaitedMillis(), waitCount, timeouts, budget.getSeconds(), remaining().toMillis());
+    }
+    
+    public static String describeSuite() {
+        StringBuilder summary = new StringBuilder("=== Wait Time Per Test ===");
+        long total = 0;
+        for (WaitBudget waitBudget : finishedTests().values()) {
+            summary.append(System.lineSeparator())
+                    .append(String.format("%-60s %7d ms  %3d waits  %2d timeouts",
+                            waitBudget.testName, waitBudget.getWaitedMillis(),
+                            waitBudget.waitCount, waitBudget.timeouts));
+            total += waitBudget.getWaitedMillis();
+        }
+        summary.append(System.lineSeparator()).append("Total wait time: ").append(total).append(" ms");
+        return summary.toString();
+    }
+}